@@ -0,0 +1,54 @@
+/**
+ * 
+ */
+package game;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Moving along the path, and turning a path position into an (x, y)
+ * location.  These happen for every enemy on every tick.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathBenchmark
+{
+    static final double STEP = 72.0 / 60;   // A snail's move in one tick
+
+    @Param({"66", "1000", "10000"})
+    int pathPoints;
+
+    PathPoints path;
+    PathPosition moving;    // Walks the path, starting over at the end
+    PathPosition halfway;   // Stays put
+
+    @Setup
+    public void setup ()
+    {
+        path = SyntheticMaps.buildPath(pathPoints, 1);
+        moving = path.getStart();
+        halfway = new PathPosition(path, path.getLength() / 2);
+    }
+
+    @Benchmark
+    public double advance ()
+    {
+        if (moving.isAtTheEnd())
+            moving = path.getStart();
+
+        moving.advance(STEP);
+        return moving.getDistance();
+    }
+
+    @Benchmark
+    public Coordinate getCoordinate ()
+    {
+        return halfway.getCoordinate();
+    }
+}
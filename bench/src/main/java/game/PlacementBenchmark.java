@@ -0,0 +1,63 @@
+/**
+ * 
+ */
+package game;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Asking how far a spot is from the path (the tower placement check
+ * and the hover preview), by walking the path segments and by reading
+ * the precomputed distance field.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlacementBenchmark
+{
+    static final int SPOTS = 4096;   // A power of two
+
+    @Param({"66", "1000", "10000"})
+    int pathPoints;
+
+    PathPoints path;
+    DistanceField field;
+    int[] spotX, spotY;
+    int next;
+
+    @Setup
+    public void setup ()
+    {
+        path = SyntheticMaps.buildPath(pathPoints, 1);
+        field = new DistanceField(path, 600, 600);
+
+        Random random = new Random(2);
+        spotX = new int[SPOTS];
+        spotY = new int[SPOTS];
+        for (int i = 0; i < SPOTS; i++)
+        {
+            spotX[i] = random.nextInt(600);
+            spotY[i] = random.nextInt(600);
+        }
+    }
+
+    @Benchmark
+    public double distanceToPath ()
+    {
+        int i = next++ & (SPOTS - 1);
+        return path.distanceToPath(spotX[i], spotY[i]);
+    }
+
+    @Benchmark
+    public int distanceField ()
+    {
+        int i = next++ & (SPOTS - 1);
+        return field.distanceAt(spotX[i], spotY[i]);
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * 
+ */
+package game;
+
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Drawing a frame's worth of sprites into an image the size of the
+ * screen:  from the images just as ImageIO decoded them, from images
+ * converted to a compatible format, and from the sprite atlas.  (This
+ * runs without a screen, so it measures Java2D's software loops.)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpriteBenchmark
+{
+    static final Sprite[] DRAWN = { Sprite.SNAIL, Sprite.SCARGO, Sprite.SALT, Sprite.SALT_CRYSTALS };
+
+    @Param({"100", "500"})
+    int spriteCount;
+
+    BufferedImage screen;
+    Graphics2D g;
+    Image[] decoded, compatible;
+    SpriteAtlas atlas;
+    int[] x, y;
+    Sprite[] sprites;
+
+    @Setup
+    public void setup () throws Exception
+    {
+        screen = new BufferedImage(800, 600, BufferedImage.TYPE_INT_RGB);
+        g = screen.createGraphics();
+
+        ImageLoader loader = ImageLoader.getLoader();
+        decoded = new Image[Sprite.ALL.length];
+        compatible = new Image[Sprite.ALL.length];
+        for (Sprite s : DRAWN)
+        {
+            decoded[s.ordinal()] = loader.readImage(s.imageName);
+            compatible[s.ordinal()] = ImageLoader.toCompatible(loader.readImage(s.imageName));
+        }
+        atlas = new SpriteAtlas(null);
+
+        Random random = new Random(3);
+        x = new int[spriteCount];
+        y = new int[spriteCount];
+        sprites = new Sprite[spriteCount];
+        for (int i = 0; i < spriteCount; i++)
+        {
+            x[i] = random.nextInt(600);
+            y[i] = random.nextInt(600);
+            sprites[i] = DRAWN[random.nextInt(DRAWN.length)];
+        }
+    }
+
+    @TearDown
+    public void tearDown ()
+    {
+        g.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage decoded ()
+    {
+        return drawAll(decoded);
+    }
+
+    @Benchmark
+    public BufferedImage compatible ()
+    {
+        return drawAll(compatible);
+    }
+
+    @Benchmark
+    public BufferedImage atlas ()
+    {
+        for (int i = 0; i < spriteCount; i++)
+            atlas.draw(g, sprites[i], x[i], y[i]);
+        return screen;
+    }
+
+    private BufferedImage drawAll (Image[] pictures)
+    {
+        for (int i = 0; i < spriteCount; i++)
+        {
+            Sprite s = sprites[i];
+            g.drawImage(pictures[s.ordinal()], x[i] - s.anchorX, y[i] - s.anchorY, null);
+        }
+        return screen;
+    }
+}
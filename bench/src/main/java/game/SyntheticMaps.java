@@ -0,0 +1,136 @@
+/**
+ * 
+ */
+package game;
+
+import java.util.Random;
+import java.util.Scanner;
+
+/**
+ * Builds made-up games for the benchmarks:  paths with any number of
+ * points, and simulations filled with any number of enemies and
+ * towers.  Everything is driven by a seed, so every run of a benchmark
+ * measures the same map.
+ */
+public class SyntheticMaps
+{
+    /* Static fields and methods */
+
+    static final int FIELD_SIZE = 600;
+    static final int LANES = 5;          // Times the path crosses the field
+    static final int JITTER = 12;        // How far points may wander off their lane
+
+    /**
+     * Builds a path that snakes back and forth across the field.  Like
+     * the real paths, it starts and ends just off the field.
+     *
+     * @param points  the number of points in the path (at least 2)
+     * @param seed    the random seed
+     * @return the path
+     */
+    public static PathPoints buildPath (int points, long seed)
+    {
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder();
+
+        points = Math.max(2, points);
+        text.append(points).append('\n');
+
+        // Spread the points evenly over the lanes.  Even lanes run left to
+        //   right, odd lanes right to left, and each lane is a little
+        //   lower on the field than the one before.  Points wander no
+        //   further than the space between them, so long paths do not
+        //   turn into zigzags.
+
+        int laneHeight = FIELD_SIZE / (LANES + 1);
+        int jitter = Math.min(JITTER, LANES * (FIELD_SIZE - 60) / points);
+
+        for (int i = 0; i < points; i++)
+        {
+            double t = (double) i / (points - 1) * LANES;
+            int lane = Math.min(LANES - 1, (int) t);
+            double across = t - lane;
+
+            if (lane % 2 == 1)
+                across = 1 - across;
+
+            int x = 30 + (int) (across * (FIELD_SIZE - 60));
+            int y = laneHeight * (lane + 1) + random.nextInt(2 * jitter + 1) - jitter;
+
+            if (i == 0)
+                x = -50;
+            if (i == points - 1)
+                x = FIELD_SIZE + 50;
+
+            text.append(x).append(' ').append(y).append('\n');
+        }
+
+        return new PathPoints(new Scanner(text.toString()));
+    }
+
+    /**
+     * Builds a simulation on the given path with plenty of lives and
+     * money, so that it never ends and can always buy towers.
+     *
+     * @param path  the path
+     * @return the simulation
+     */
+    public static GameSimulation buildSimulation (PathPoints path)
+    {
+        GameSimulation sim = new GameSimulation(path, GameClock.SYSTEM);
+
+        sim.lives = Integer.MAX_VALUE / 2;
+        sim.money = 1000000;
+
+        return sim;
+    }
+
+    /**
+     * Places towers at random legal spots within reach of the path.
+     *
+     * @param sim    the simulation
+     * @param count  the number of towers to place
+     * @param seed   the random seed
+     * @return the number of towers placed (fewer than asked for only if
+     *         no more legal spots could be found)
+     */
+    public static int placeTowers (GameSimulation sim, int count, long seed)
+    {
+        Random random = new Random(seed);
+        int placed = 0;
+
+        for (int tries = 0; placed < count && tries < count * 1000; tries++)
+        {
+            int x = 1 + random.nextInt(FIELD_SIZE - 2);
+            int y = 1 + random.nextInt(FIELD_SIZE - 2);
+
+            if (sim.pathDistance.distanceAt(x, y) > 90)   // Out of range, not useful
+                continue;
+
+            sim.selectTower();
+            if (sim.placeTower(x, y))
+                placed++;
+        }
+
+        return placed;
+    }
+
+    /**
+     * Adds enemies at random distances along the path until the game
+     * holds the given number of them.
+     *
+     * @param sim     the simulation
+     * @param count   the number of enemies wanted
+     * @param random  the random numbers to use
+     */
+    public static void fillEnemies (GameSimulation sim, int count, Random random)
+    {
+        double length = sim.gardenPath.getLength();
+
+        while (sim.enemies.size() < count)
+        {
+            int i = sim.enemies.spawn(random.nextBoolean() ? EnemyType.SNAIL : EnemyType.SCARGO);
+            sim.enemies.advance(i, random.nextDouble() * length * 0.95);
+        }
+    }
+}
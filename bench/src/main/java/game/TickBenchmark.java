@@ -0,0 +1,70 @@
+/**
+ * 
+ */
+package game;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * A whole simulation step (what Game.doUpdateTasks does once per
+ * step).  After each step the game is topped back up to the wanted
+ * number of enemies, so the crowd does not thin out as the benchmark
+ * runs; that top-up is part of the measured time, but is small next
+ * to the step.
+ *
+ * The threads parameter compares the serial tick with the parallel one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TickBenchmark
+{
+    static final double STEP = 1.0 / 60;
+
+    @Param({"100", "1000", "10000"})
+    int enemyCount;
+
+    @Param({"10", "40"})
+    int towerCount;
+
+    @Param({"66", "1000"})
+    int pathPoints;
+
+    @Param({"1", "4"})
+    int threads;
+
+    GameSimulation sim;
+    Random random;
+
+    @Setup
+    public void setup ()
+    {
+        sim = SyntheticMaps.buildSimulation(SyntheticMaps.buildPath(pathPoints, 1));
+        sim.setThreads(threads);
+        SyntheticMaps.placeTowers(sim, towerCount, 2);
+
+        random = new Random(3);
+        SyntheticMaps.fillEnemies(sim, enemyCount, random);
+    }
+
+    @Benchmark
+    public int tick ()
+    {
+        sim.step(STEP);
+        SyntheticMaps.fillEnemies(sim, enemyCount, random);
+
+        return sim.enemies.size();
+    }
+
+    @TearDown
+    public void tearDown ()
+    {
+        sim.setThreads(1);
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * 
+ */
+package game;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Salt towers and a salt crystal in a crowd of enemies.  The enemies
+ * do not move, so every call sees the same crowd.  Each call of the
+ * tower benchmarks runs every tower once.
+ *
+ * The simulation only runs a salt tower once it has reloaded, so
+ * every saltInteract call aims and throws.  Nothing is ever killed, so
+ * after the first call the towers keep their targets; firstTarget and
+ * closestTarget measure choosing a new one.  The commands the towers and crystal ask for are thrown away.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TowerBenchmark
+{
+    static final double STEP = 1.0 / 60;
+
+    @Param({"10", "1000", "10000"})
+    int enemyCount;
+
+    @Param({"1", "10", "40"})
+    int towerCount;
+
+    @Param({"66", "1000"})
+    int pathPoints;
+
+    GameSimulation sim;
+    Salt[] salts;
+    SaltCrystal crystal;
+    double[][] coverages;
+    TickWorker worker;
+
+    @Setup
+    public void setup ()
+    {
+        sim = SyntheticMaps.buildSimulation(SyntheticMaps.buildPath(pathPoints, 1));
+        SyntheticMaps.placeTowers(sim, towerCount, 2);
+        SyntheticMaps.fillEnemies(sim, enemyCount, new Random(3));
+        sim.enemyGrid.rebuild(sim.enemies);
+        sim.enemyOrder.rebuild(sim.enemies);
+
+        salts = new Salt[sim.towers.size()];
+        coverages = new double[salts.length][];
+        for (int t = 0; t < salts.length; t++)
+        {
+            salts[t] = (Salt) sim.towers.get(t);
+            coverages[t] = sim.gardenPath.getCoverage(salts[t].getX(), salts[t].getY(), Salt.RANGE);
+        }
+
+        crystal = new SaltCrystal();
+        worker = new TickWorker(sim.commands);
+    }
+
+    @Benchmark
+    public void saltInteract ()
+    {
+        for (Salt salt : salts)
+            salt.interact(sim, worker);
+        sim.commands.clear();
+    }
+
+    @Benchmark
+    public int firstTarget ()
+    {
+        return findTargets(TargetPolicy.FIRST);
+    }
+
+    @Benchmark
+    public int closestTarget ()
+    {
+        return findTargets(TargetPolicy.CLOSEST);
+    }
+
+    @Benchmark
+    public void saltCrystalInteract ()
+    {
+        Salt salt = salts[0];
+        crystal.init(salt.getX(), salt.getY(), salt.getX() - 100, salt.getY() - 100, 0);
+        crystal.interact(sim, worker, STEP);
+        sim.commands.clear();
+    }
+
+    private int findTargets (TargetPolicy policy)
+    {
+        int targets = 0;
+        for (int t = 0; t < salts.length; t++)
+            targets += sim.enemyOrder.findTarget(policy, coverages[t], salts[t].getX(), salts[t].getY(), sim.enemies);
+        return targets;
+    }
+}
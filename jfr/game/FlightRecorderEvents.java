@@ -0,0 +1,241 @@
+/**
+ * 
+ */
+package game;
+
+import jdk.jfr.*;
+
+/**
+ * Reports what happens in the game as JDK Flight Recorder events (see
+ * GameEvents), under "Game" in JDK Mission Control.  Each event is only
+ * filled in and committed if the recording wants it, and none of them
+ * take a stack trace.
+ *
+ * (This file needs Java 11, and is built apart from the rest of the
+ * game.  The simulation loads it by name when game.jfr is true.)
+ */
+public class FlightRecorderEvents implements GameEvents
+{
+    /* (non-Javadoc)
+     * @see game.GameEvents#spawn(int, game.EnemyType, double)
+     */
+    @Override
+    public void spawn (int enemy, EnemyType type, double headStart)
+    {
+        Spawn e = new Spawn();
+        if (e.shouldCommit())
+        {
+            e.enemy = enemy;
+            e.type = type.name();
+            e.headStart = headStart;
+            e.commit();
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see game.GameEvents#shot(int, int, int, int, int)
+     */
+    @Override
+    public void shot (int tower, int x, int y, int targetX, int targetY)
+    {
+        Shot e = new Shot();
+        if (e.shouldCommit())
+        {
+            e.tower = tower;
+            e.x = x;
+            e.y = y;
+            e.targetX = targetX;
+            e.targetY = targetY;
+            e.commit();
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see game.GameEvents#kill(int, int, int)
+     */
+    @Override
+    public void kill (int enemy, int tower, int reward)
+    {
+        Kill e = new Kill();
+        if (e.shouldCommit())
+        {
+            e.enemy = enemy;
+            e.tower = tower;
+            e.reward = reward;
+            e.commit();
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see game.GameEvents#leak(int, game.EnemyType, int)
+     */
+    @Override
+    public void leak (int enemy, EnemyType type, int livesLeft)
+    {
+        Leak e = new Leak();
+        if (e.shouldCommit())
+        {
+            e.enemy = enemy;
+            e.type = type.name();
+            e.livesLeft = livesLeft;
+            e.commit();
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see game.GameEvents#tick(int, game.PhaseTimers, int, int, int)
+     */
+    @Override
+    public void tick (int tick, PhaseTimers timers, int enemies, int readyTowers, int effects)
+    {
+        // One event per phase, then one for the whole tick.  (They are
+        //   made after the tick, so the time is a field of its own, not
+        //   the event's duration.)
+
+        for (int p = 0; p < timers.getPhaseCount(); p++)
+        {
+            if (p == GameSimulation.TICK)
+                continue;
+
+            TickPhase e = new TickPhase();
+            if (!e.shouldCommit())
+                break;
+
+            e.tick = tick;
+            e.phase = timers.getName(p);
+            e.nanos = timers.getLatest(p);
+            e.commit();
+        }
+
+        Tick e = new Tick();
+        if (e.shouldCommit())
+        {
+            e.tick = tick;
+            e.nanos = timers.getLatest(GameSimulation.TICK);
+            e.enemies = enemies;
+            e.readyTowers = readyTowers;
+            e.effects = effects;
+            e.commit();
+        }
+    }
+
+    /* The events */
+
+    @Name("game.Spawn")
+    @Label("Spawn")
+    @Description("An enemy was added to the game")
+    @Category("Game")
+    @StackTrace(false)
+    static class Spawn extends Event
+    {
+        @Label("Enemy")
+        int enemy;
+
+        @Label("Type")
+        String type;
+
+        @Label("Head Start")
+        @Description("How far along the path it started, in pixels")
+        double headStart;
+    }
+
+    @Name("game.Shot")
+    @Label("Shot")
+    @Description("A tower threw a salt crystal")
+    @Category("Game")
+    @StackTrace(false)
+    static class Shot extends Event
+    {
+        @Label("Tower")
+        int tower;
+
+        @Label("X")
+        int x;
+
+        @Label("Y")
+        int y;
+
+        @Label("Target X")
+        int targetX;
+
+        @Label("Target Y")
+        int targetY;
+    }
+
+    @Name("game.Kill")
+    @Label("Kill")
+    @Description("An enemy was killed")
+    @Category("Game")
+    @StackTrace(false)
+    static class Kill extends Event
+    {
+        @Label("Enemy")
+        int enemy;
+
+        @Label("Tower")
+        @Description("The tower that killed it, or -1")
+        int tower;
+
+        @Label("Reward")
+        int reward;
+    }
+
+    @Name("game.Leak")
+    @Label("Leak")
+    @Description("An enemy reached the end of the path")
+    @Category("Game")
+    @StackTrace(false)
+    static class Leak extends Event
+    {
+        @Label("Enemy")
+        int enemy;
+
+        @Label("Type")
+        String type;
+
+        @Label("Lives Left")
+        int livesLeft;
+    }
+
+    @Name("game.TickPhase")
+    @Label("Tick Phase")
+    @Description("One phase of a tick (see GameSimulation.PHASE_NAMES)")
+    @Category("Game")
+    @StackTrace(false)
+    static class TickPhase extends Event
+    {
+        @Label("Tick")
+        int tick;
+
+        @Label("Phase")
+        String phase;
+
+        @Label("Phase Duration")
+        @Timespan(Timespan.NANOSECONDS)
+        long nanos;
+    }
+
+    @Name("game.Tick")
+    @Label("Tick")
+    @Description("One step of the simulation, and what was in the game")
+    @Category("Game")
+    @StackTrace(false)
+    static class Tick extends Event
+    {
+        @Label("Tick")
+        int tick;
+
+        @Label("Tick Duration")
+        @Timespan(Timespan.NANOSECONDS)
+        long nanos;
+
+        @Label("Enemies")
+        int enemies;
+
+        @Label("Ready Towers")
+        int readyTowers;
+
+        @Label("Effects")
+        int effects;
+    }
+}
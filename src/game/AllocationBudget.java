@@ -0,0 +1,175 @@
+/**
+ * 
+ */
+package game;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * Checks how much memory the game tick allocates.  A busy game (towers
+ * along the path, and a new enemy every tick on top of the waves, so
+ * hundreds are alive at once) is run until it settles, then the bytes
+ * allocated over many more ticks are measured with the JVM's
+ * per-thread allocation counters.  Each tick also captures a
+ * RenderSnapshot, as the game loop does for the renderer.  Garbage made
+ * every tick shows up as GC pauses, which show up as stutter.
+ *
+ * The game is measured twice:  with a serial tick, then with a
+ * parallel tick on 4 threads (counting the pool's threads as well as
+ * this one).  Drawing the snapshot is not measured, since Java2D
+ * allocates as it likes.
+ *
+ * Run it with "java game.AllocationBudget".  It exits with status 1
+ * if the tick allocates more than the budget.
+ */
+public class AllocationBudget
+{
+    /* Static fields and methods */
+
+    static final double BYTES_PER_TICK = 1;
+    static final int WARMUP_TICKS = 50000;
+    static final int MEASURED_TICKS = 50000;
+    static final double STEP = 1.0 / 60;
+    static final int MIN_ENEMIES = 200;    // Fewer than this alive, and the game is not busy enough
+    static final int PARALLEL_THREADS = 4;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * Runs the check.
+     *
+     * @param args not used
+     * @throws IOException if the path cannot be loaded
+     */
+    public static void main (String[] args) throws IOException
+    {
+        GameSimulation sim = buildScenario();
+        RenderSnapshot snapshot = new RenderSnapshot();
+
+        boolean passed = measure("Serial tick", sim, snapshot);
+
+        sim.setThreads(PARALLEL_THREADS);
+        passed &= measure("Parallel tick (" + PARALLEL_THREADS + " threads)", sim, snapshot);
+        sim.setThreads(1);
+
+        if (!passed)
+        {
+            System.out.println("FAILED: the tick allocates more than its budget.");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Builds a game with a few towers, lots of enemies, and enough lives
+     * that it never ends.
+     *
+     * @return the simulation
+     * @throws IOException if the path cannot be loaded
+     */
+    static GameSimulation buildScenario () throws IOException
+    {
+        GameSimulation sim = new GameSimulation(PathPoints.load("path_2.txt"), GameClock.SYSTEM);
+
+        sim.lives = Integer.MAX_VALUE / 2;
+        sim.money = 1000000;
+
+        // Put a tower on every fourth legal spot of a coarse grid that is
+        //   within reach of the path.  (Too many, and no enemy lives long
+        //   enough to crowd the path.)
+
+        int spot = 0;
+        for (int y = 30; y < 600; y += 60)
+            for (int x = 30; x < 600; x += 60)
+                if (sim.pathDistance.distanceAt(x, y) < 90 && spot++ % 4 == 0)
+                {
+                    sim.selectTower();
+                    sim.placeTower(x, y);
+                }
+
+        return sim;
+    }
+
+    /**
+     * Warms the game up, then measures what its ticks allocate.
+     *
+     * @param label     what is being measured
+     * @param sim       the simulation
+     * @param snapshot  the snapshot to capture each tick
+     * @return true if the ticks stayed within the budget
+     */
+    static boolean measure (String label, GameSimulation sim, RenderSnapshot snapshot)
+    {
+        // Let the game fill up, the arrays grow to size, and the JIT
+        //   compile the tick.
+
+        run(sim, snapshot, WARMUP_TICKS);
+
+        // Measure this thread, and the parallel tick's threads (which
+        //   have all started by now).
+
+        long[] ids = tickThreads();
+        long[] before = THREADS.getThreadAllocatedBytes(ids);
+
+        run(sim, snapshot, MEASURED_TICKS);
+
+        long[] after = THREADS.getThreadAllocatedBytes(ids);
+        long bytes = 0;
+        for (int i = 0; i < ids.length; i++)
+            bytes += after[i] - before[i];
+
+        double perTick = bytes / (double) MEASURED_TICKS;
+
+        System.out.println(label + ":");
+        System.out.println("  Towers: " + sim.towers.size() + ", enemies: " + sim.enemies.size() +
+                           ", effects: " + sim.effects.size());
+        System.out.println("  Enemy pool: " + sim.getEnemyPoolStats());
+        System.out.println("  Effect pool: " + sim.getEffectPoolStats());
+        System.out.println("  Allocated " + bytes + " bytes in " + MEASURED_TICKS + " ticks on " +
+                           ids.length + " threads (" + perTick + " bytes per tick, budget " +
+                           BYTES_PER_TICK + ")");
+
+        if (sim.enemies.size() < MIN_ENEMIES)
+        {
+            System.out.println("  Only " + sim.enemies.size() + " enemies:  the game is not busy enough to measure.");
+            return false;
+        }
+
+        return perTick <= BYTES_PER_TICK;
+    }
+
+    /* Helpers */
+
+    /**
+     * Runs the game, adding a new enemy every tick (on top of the
+     * waves) and capturing a snapshot after each tick.
+     */
+    private static void run (GameSimulation sim, RenderSnapshot snapshot, int ticks)
+    {
+        for (int i = 0; i < ticks; i++)
+        {
+            sim.commands.spawnEnemy(i % 4 == 0 ? EnemyType.SCARGO : EnemyType.SNAIL);
+            sim.step(STEP);
+            snapshot.capture(sim, false, 0, 1);
+        }
+    }
+
+    /**
+     * Returns the ids of this thread and of every ForkJoin pool thread.
+     */
+    private static long[] tickThreads ()
+    {
+        Thread[] all = new Thread[2 * Thread.activeCount() + 8];
+        int count = Thread.enumerate(all);
+
+        long[] ids = new long[count];
+        int n = 0;
+        for (int i = 0; i < count; i++)
+            if (all[i] == Thread.currentThread() || all[i] instanceof ForkJoinWorkerThread)
+                ids[n++] = all[i].getId();
+
+        return java.util.Arrays.copyOf(ids, n);
+    }
+}
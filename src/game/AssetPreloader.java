@@ -0,0 +1,160 @@
+/**
+ * 
+ */
+package game;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads the images listed in a manifest, in parallel, on a pool of
+ * background threads.  The images go into the ImageLoader's cache, so
+ * when the game asks for them later (for example, the first time a
+ * kind of enemy is drawn) they are already there.
+ *
+ * The manifest is a resource file with one image filename per line.
+ * Blank lines, and anything after a '#', are ignored.
+ */
+public class AssetPreloader
+{
+    /* Static fields and methods */
+
+    static final String MANIFEST = "manifest.txt";
+
+    /**
+     * Reads the filenames from a manifest.
+     *
+     * @param manifestName  the manifest, relative to the "resources" directory
+     * @return the filenames, in order
+     * @throws IOException if the manifest cannot be read
+     */
+    public static List<String> readManifest (String manifestName) throws IOException
+    {
+        InputStream in = AssetPreloader.class.getClassLoader().getResourceAsStream("resources/" + manifestName);
+        if (in == null)
+            throw new IOException("No manifest " + manifestName);
+
+        List<String> filenames = new ArrayList<String>();
+        Scanner s = new Scanner(in, "UTF-8");
+        try
+        {
+            while (s.hasNextLine())
+            {
+                String line = s.nextLine();
+                int comment = line.indexOf('#');
+                if (comment >= 0)
+                    line = line.substring(0, comment);
+
+                line = line.trim();
+                if (line.length() > 0)
+                    filenames.add(line);
+            }
+        }
+        finally
+        {
+            s.close();
+        }
+
+        return filenames;
+    }
+
+    /* Object fields and methods */
+
+    private int total;
+    private AtomicInteger loaded;
+    private CountDownLatch done;
+
+    /**
+     * Starts loading the images.  The threads stop by themselves once
+     * every image is loaded.
+     *
+     * @param filenames  the images to load
+     * @param threads    the number of threads to load them on
+     * @param progress   run (on a loading thread) each time an image is
+     *                   loaded, or null
+     */
+    public AssetPreloader (List<String> filenames, int threads, final Runnable progress)
+    {
+        total = filenames.size();
+        loaded = new AtomicInteger();
+        done = new CountDownLatch(total);
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactory()
+        {
+            public Thread newThread (Runnable r)
+            {
+                Thread t = new Thread(r, "Preload");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+
+        final ImageLoader loader = ImageLoader.getLoader();
+        for (final String filename : filenames)
+        {
+            pool.execute(new Runnable()
+            {
+                public void run ()
+                {
+                    try
+                    {
+                        loader.getImage(filename);
+                        loaded.incrementAndGet();
+
+                        if (progress != null)
+                            progress.run();
+                    }
+                    finally
+                    {
+                        done.countDown();
+                    }
+                }
+            });
+        }
+
+        pool.shutdown();
+    }
+
+    /**
+     * Returns the number of images loaded so far.
+     *
+     * @return the number loaded
+     */
+    public int getLoaded ()
+    {
+        return loaded.get();
+    }
+
+    /**
+     * Returns the number of images to load.
+     *
+     * @return the number of images in the manifest
+     */
+    public int getTotal ()
+    {
+        return total;
+    }
+
+    /**
+     * Returns true once every image is loaded.
+     *
+     * @return true if done
+     */
+    public boolean isDone ()
+    {
+        return done.getCount() == 0;
+    }
+
+    /**
+     * Waits until every image is loaded.
+     *
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    public void await () throws InterruptedException
+    {
+        done.await();
+    }
+}
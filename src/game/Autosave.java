@@ -0,0 +1,110 @@
+/**
+ * 
+ */
+package game;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.*;
+
+/**
+ * Saves the game every few seconds of game time (see SaveGame), so a
+ * game that crashes can be picked up again where it left off.  The
+ * game thread only captures the snapshot, which takes a fraction of a
+ * millisecond; the file is written by a thread of its own.  If the last
+ * file is still being written when the next save is due, the save is
+ * put off to the next tick.
+ */
+public class Autosave
+{
+    private File file;
+    private double interval;     // Game seconds between saves
+    private double nextSave;     // The game time of the next save
+    private ByteBuffer buffer;   // The last snapshot (reused)
+    private ExecutorService writer;
+    private Future<?> writing;   // The write in progress, or null
+    private boolean failed;      // True once a write has failed (so we only say so once)
+
+    /**
+     * Builds an autosave.
+     *
+     * @param file      the file to save to
+     * @param interval  the game seconds between saves
+     */
+    public Autosave (File file, double interval)
+    {
+        this.file = file;
+        this.interval = interval;
+
+        writer = Executors.newSingleThreadExecutor(new ThreadFactory()
+        {
+            public Thread newThread (Runnable r)
+            {
+                Thread t = new Thread(r, "Autosave");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Saves the game if a save is due.  Call this between ticks.
+     *
+     * @param sim  the simulation
+     */
+    public void update (GameSimulation sim)
+    {
+        if (sim.getTime() < nextSave || (writing != null && !writing.isDone()))
+            return;
+
+        buffer = SaveGame.capture(sim, buffer);
+        nextSave = sim.getTime() + interval;
+
+        final ByteBuffer snapshot = buffer;
+        writing = writer.submit(new Runnable()
+        {
+            public void run ()
+            {
+                try
+                {
+                    SaveGame.write(snapshot, file);
+                }
+                catch (IOException e)
+                {
+                    if (!failed)
+                        System.out.println ("Could not autosave to " + file + ": " + e.getMessage());
+                    failed = true;
+                }
+            }
+        });
+    }
+
+    /**
+     * Deletes the saved game (when the game is over, so that the next
+     * launch starts a new one).  No more saves are made.
+     */
+    public void discard ()
+    {
+        try
+        {
+            if (writing != null)
+                writing.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException e)
+        {
+            // The write failed; there is nothing to wait for.
+        }
+
+        // (If it cannot be deleted, the next launch would pick up a game
+        //   that is over, so say so.)
+
+        if (file.exists() && !file.delete())
+            System.out.println ("Could not delete the saved game " + file);
+        nextSave = Double.MAX_VALUE;
+    }
+}
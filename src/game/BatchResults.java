@@ -0,0 +1,260 @@
+/**
+ * 
+ */
+package game;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * A table of int columns, saved in a compact columnar file.  Each
+ * column is stored in one piece, so a tool that only wants (say) the
+ * leaks can read that column and skip over the rest.
+ *
+ * A column can also hold a list per row (such as a money curve).  The
+ * lists are stored one after another in a values column, with a second
+ * column holding where each row's list starts (one entry per row, plus
+ * one past the end).
+ *
+ * The file holds, in order (all big-endian, as written by DataOutput):
+ *
+ *   int    MAGIC
+ *   int    VERSION
+ *   int    number of rows
+ *   int    number of columns
+ *   then for each column:
+ *     UTF  column name
+ *     int  number of values (n)
+ *     int  n values
+ */
+public class BatchResults
+{
+    /* Static fields and methods */
+
+    static final int MAGIC = 0x54444252;   // "TDBR"
+    static final int VERSION = 1;
+
+    /**
+     * Reads a whole table.
+     *
+     * @param file  the file to read
+     * @return the table
+     * @throws IOException if the file cannot be read, or is not a table
+     */
+    public static BatchResults read (File file) throws IOException
+    {
+        DataInputStream in = open(file);
+        try
+        {
+            BatchResults table = new BatchResults();
+            table.rows = in.readInt();
+            int columns = in.readInt();
+
+            for (int c = 0; c < columns; c++)
+            {
+                String name = in.readUTF();
+                int[] values = new int[in.readInt()];
+                for (int i = 0; i < values.length; i++)
+                    values[i] = in.readInt();
+
+                table.columns.put(name, values);
+            }
+
+            return table;
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * Reads one column of a table, skipping over the others.
+     *
+     * @param file  the file to read
+     * @param name  the name of the column
+     * @return the values in the column
+     * @throws IOException if the file cannot be read, is not a table,
+     *         or has no such column
+     */
+    public static int[] readColumn (File file, String name) throws IOException
+    {
+        DataInputStream in = open(file);
+        try
+        {
+            in.readInt();   // Rows
+            int columns = in.readInt();
+
+            for (int c = 0; c < columns; c++)
+            {
+                String columnName = in.readUTF();
+                int count = in.readInt();
+
+                if (!columnName.equals(name))
+                {
+                    skipFully(in, 4L * count);
+                    continue;
+                }
+
+                int[] values = new int[count];
+                for (int i = 0; i < count; i++)
+                    values[i] = in.readInt();
+
+                return values;
+            }
+
+            throw new IOException("No column '" + name + "' in " + file);
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    private static DataInputStream open (File file) throws IOException
+    {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+
+        if (in.readInt() != MAGIC || in.readInt() != VERSION)
+        {
+            in.close();
+            throw new IOException(file + " is not a batch results file");
+        }
+
+        return in;
+    }
+
+    private static void skipFully (DataInputStream in, long count) throws IOException
+    {
+        while (count > 0)
+        {
+            long skipped = in.skip(count);
+            if (skipped <= 0)
+                throw new EOFException();
+            count -= skipped;
+        }
+    }
+
+    /* Object fields and methods */
+
+    private int rows;
+    private Map<String, int[]> columns;   // In the order they were added
+
+    /**
+     * Builds an empty table.
+     */
+    public BatchResults ()
+    {
+        columns = new LinkedHashMap<String, int[]>();
+    }
+
+    /**
+     * Returns the number of rows.
+     *
+     * @return the number of rows
+     */
+    public int getRows ()
+    {
+        return rows;
+    }
+
+    /**
+     * Returns the names of the columns, in order.
+     *
+     * @return the column names
+     */
+    public Set<String> getColumnNames ()
+    {
+        return columns.keySet();
+    }
+
+    /**
+     * Returns a column.
+     *
+     * @param name  the column name
+     * @return the values, or null if there is no such column
+     */
+    public int[] getColumn (String name)
+    {
+        return columns.get(name);
+    }
+
+    /**
+     * Adds a column with one value per row.
+     *
+     * @param name    the column name
+     * @param values  the values
+     * @throws IllegalArgumentException if the number of values does not
+     *         match the columns already added
+     */
+    public void addColumn (String name, int[] values)
+    {
+        if (columns.isEmpty())
+            rows = values.length;
+        else if (values.length != rows)
+            throw new IllegalArgumentException("Column " + name + " has " + values.length +
+                                               " values, but the table has " + rows + " rows");
+
+        columns.put(name, values);
+    }
+
+    /**
+     * Adds a column holding a list per row.  This adds two columns:
+     * 'name' with the values of all the lists, one after another, and
+     * 'name.start' with where each row's list starts in it.
+     *
+     * @param name   the column name
+     * @param lists  the list for each row
+     */
+    public void addListColumn (String name, int[][] lists)
+    {
+        int[] start = new int[lists.length + 1];
+        for (int i = 0; i < lists.length; i++)
+            start[i + 1] = start[i] + lists[i].length;
+
+        int[] values = new int[start[lists.length]];
+        for (int i = 0; i < lists.length; i++)
+            System.arraycopy(lists[i], 0, values, start[i], lists[i].length);
+
+        if (columns.isEmpty())
+            rows = lists.length;
+        else if (lists.length != rows)
+            throw new IllegalArgumentException("Column " + name + " has " + lists.length +
+                                               " rows, but the table has " + rows);
+
+        columns.put(name + ".start", start);
+        columns.put(name, values);
+    }
+
+    /**
+     * Writes the table.
+     *
+     * @param file  the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void write (File file) throws IOException
+    {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+        try
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(rows);
+            out.writeInt(columns.size());
+
+            for (Map.Entry<String, int[]> column : columns.entrySet())
+            {
+                int[] values = column.getValue();
+
+                out.writeUTF(column.getKey());
+                out.writeInt(values.length);
+                for (int i = 0; i < values.length; i++)
+                    out.writeInt(values[i]);
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,337 @@
+/**
+ * 
+ */
+package game;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Plays many games without drawing them, on every core, to help tune
+ * the waves and the economy.  Each game is played by a seeded
+ * RandomPlacementPolicy, and every combination of the settings below
+ * is played with the same seeds, so the combinations can be compared
+ * game for game.
+ *
+ * Usage:  java game.BatchRunner [option value]...
+ *
+ *   -games N          games per combination of settings (default 100)
+ *   -seed N           the seed of the first game (default 1); the seeds
+ *                     of all the games must fit in an int
+ *   -waves A,B,...    wave scripts (see GameSimulation.DEFAULT_WAVES);
+ *                     "@file" reads a script, or a wave file (see
+ *                     WaveFile), from a file or resource
+ *   -towerCost A,...  tower prices (default 120)
+ *   -reward A,...     money paid per kill (default 10)
+ *   -reach A,...      furthest from the path the policy builds (default 90)
+ *   -minutes N        longest game, in game minutes (default 10)
+ *   -path NAME        the path resource (default path_2.txt)
+ *   -threads N        threads to use (default: one per core)
+ *   -out FILE         the results file (default batch.tdbr)
+ *
+ * The results file (see BatchResults) has one row per game.  Its
+ * columns are the settings (game, seed, waves, towerCost, reward,
+ * reach) and the results: ticks survived, survived (1 or 0), leaks,
+ * kills, towers built, final money, the money once a second (the
+ * list column moneyCurve), and the kills of each tower (the list
+ * column towerKills).  A summary of each combination is printed.
+ */
+public class BatchRunner
+{
+    /* Static fields and methods */
+
+    static final double STEP = 1.0 / 60;
+    static final int TICKS_PER_SAMPLE = 60;   // Money is sampled once a game second
+
+    /**
+     * Runs the batch.
+     *
+     * @param args  the options (see above)
+     * @throws Exception if the path or a wave script cannot be read,
+     *         a game fails, or the results cannot be written
+     */
+    public static void main (String[] args) throws Exception
+    {
+        Map<String, String> options = new HashMap<String, String>();
+        for (int i = 0; i + 1 < args.length; i += 2)
+        {
+            if (!args[i].startsWith("-"))
+                throw new IllegalArgumentException("Expected an option, found " + args[i]);
+            options.put(args[i].substring(1), args[i + 1]);
+        }
+
+        int games = Integer.parseInt(option(options, "games", "100"));
+        long seed = Long.parseLong(option(options, "seed", "1"));
+        WaveTimeline[] waves = readWaves(option(options, "waves", GameSimulation.DEFAULT_WAVES));
+        int[] towerCosts = parseList(option(options, "towerCost", "120"));
+        int[] rewards = parseList(option(options, "reward", "10"));
+        int[] reaches = parseList(option(options, "reach", "90"));
+        int maxTicks = (int) (Integer.parseInt(option(options, "minutes", "10")) * 60 / STEP);
+        int threads = Integer.parseInt(option(options, "threads", "" + Runtime.getRuntime().availableProcessors()));
+        File out = new File(option(options, "out", "batch.tdbr"));
+
+        // The results file only holds ints, so every seed must fit in one.
+
+        if (seed < Integer.MIN_VALUE || seed > Integer.MAX_VALUE - (games - 1L))
+            throw new IllegalArgumentException("The seeds of " + games + " games from " + seed +
+                                               " do not all fit in the results file's int column");
+
+        final PathPoints path = PathPoints.load(option(options, "path", "path_2.txt"));
+        path.getDistanceField();   // Build it once, before the games share it
+
+        // Make a game for every combination of settings and seed.
+
+        List<Trial> batch = new ArrayList<Trial>();
+        for (int w = 0; w < waves.length; w++)
+            for (int towerCost : towerCosts)
+                for (int reward : rewards)
+                    for (int reach : reaches)
+                        for (int k = 0; k < games; k++)
+                            batch.add(new Trial(batch.size(), seed + k, w, waves[w], towerCost, reward, reach));
+
+        // Play them.  The results are gathered in game order, so the
+        //   file does not depend on which thread finished first.
+
+        System.out.println("Playing " + batch.size() + " games on " + threads + " threads...");
+        long start = System.nanoTime();
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Trial>> played = new ArrayList<Future<Trial>>();
+        try
+        {
+            for (final Trial g : batch)
+            {
+                final int ticks = maxTicks;
+                played.add(pool.submit(new Callable<Trial>()
+                {
+                    public Trial call ()
+                    {
+                        g.play(path, ticks);
+                        return g;
+                    }
+                }));
+            }
+
+            for (Future<Trial> f : played)
+                f.get();
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+
+        System.out.printf("Done in %.1f seconds.%n", (System.nanoTime() - start) / 1e9);
+
+        save(batch, out);
+        System.out.println("Wrote " + out);
+
+        printSummary(batch);
+    }
+
+    private static String option (Map<String, String> options, String name, String defaultValue)
+    {
+        String value = options.get(name);
+        return value == null ? defaultValue : value;
+    }
+
+    private static int[] parseList (String text)
+    {
+        String[] parts = text.split(",");
+        int[] values = new int[parts.length];
+        for (int i = 0; i < parts.length; i++)
+            values[i] = Integer.parseInt(parts[i].trim());
+        return values;
+    }
+
+    private static WaveTimeline[] readWaves (String text) throws IOException
+    {
+        String[] entries = text.split(",");
+        WaveTimeline[] waves = new WaveTimeline[entries.length];
+        for (int i = 0; i < entries.length; i++)
+        {
+            String entry = entries[i].trim();
+            waves[i] = entry.startsWith("@") ? readWaveFile(entry.substring(1))
+                                             : WaveTimeline.fromScript(entry);
+        }
+        return waves;
+    }
+
+    /**
+     * Reads a file holding a wave script, or a wave file (see WaveFile).
+     * A name that is not a file is looked for among the resources, as
+     * the game and Replay look for their waves.
+     */
+    private static WaveTimeline readWaveFile (String name) throws IOException
+    {
+        Reader reader;
+        File file = new File(name);
+        if (file.exists())
+            reader = new InputStreamReader(new FileInputStream(file), "UTF-8");
+        else
+        {
+            InputStream in = BatchRunner.class.getClassLoader().getResourceAsStream("resources/" + name);
+            if (in == null)
+                throw new FileNotFoundException("No wave file " + name);
+            reader = new InputStreamReader(in, "UTF-8");
+        }
+
+        StringBuilder text = new StringBuilder();
+        try
+        {
+            char[] buffer = new char[4096];
+            int n;
+            while ((n = reader.read(buffer)) > 0)
+                text.append(buffer, 0, n);
+        }
+        finally
+        {
+            reader.close();
+        }
+
+        // A script is only letters and digits (it may be split over
+        //   lines).  Anything else must be a wave file.
+
+        String script = text.toString().replaceAll("\\s", "");
+        if (script.matches("[sv0-9]+"))
+            return WaveTimeline.fromScript(script);
+
+        WaveFile waves = new WaveFile(new BufferedReader(new StringReader(text.toString())), name, false);
+        try
+        {
+            return WaveTimeline.compile(waves);
+        }
+        finally
+        {
+            waves.close();
+        }
+    }
+
+    private static void save (List<Trial> batch, File file) throws IOException
+    {
+        int n = batch.size();
+        int[][] columns = new int[12][n];
+        int[][] moneyCurves = new int[n][];
+        int[][] towerKills = new int[n][];
+
+        for (int i = 0; i < n; i++)
+        {
+            Trial g = batch.get(i);
+            int[] row = { g.number, (int) g.seed, g.waveNumber, g.towerCost, g.reward, g.reach,
+                          g.ticks, g.survived ? 1 : 0, g.leaks, g.kills, g.towers, g.finalMoney };
+            for (int c = 0; c < row.length; c++)
+                columns[c][i] = row[c];
+
+            moneyCurves[i] = g.moneyCurve;
+            towerKills[i] = g.towerKills;
+        }
+
+        String[] names = { "game", "seed", "waves", "towerCost", "reward", "reach",
+                           "ticks", "survived", "leaks", "kills", "towers", "money" };
+
+        BatchResults table = new BatchResults();
+        for (int c = 0; c < names.length; c++)
+            table.addColumn(names[c], columns[c]);
+        table.addListColumn("moneyCurve", moneyCurves);
+        table.addListColumn("towerKills", towerKills);
+
+        table.write(file);
+    }
+
+    private static void printSummary (List<Trial> batch)
+    {
+        // The games of one combination are next to each other in the batch.
+
+        int i = 0;
+        while (i < batch.size())
+        {
+            Trial first = batch.get(i);
+            int count = 0, survived = 0;
+            double ticks = 0, leaks = 0, kills = 0, towers = 0, money = 0;
+
+            for (; i < batch.size(); i++)
+            {
+                Trial g = batch.get(i);
+                if (g.waveNumber != first.waveNumber || g.towerCost != first.towerCost ||
+                    g.reward != first.reward || g.reach != first.reach)
+                    break;
+
+                count++;
+                survived += g.survived ? 1 : 0;
+                ticks += g.ticks;
+                leaks += g.leaks;
+                kills += g.kills;
+                towers += g.towers;
+                money += g.finalMoney;
+            }
+
+            System.out.printf("waves %d, towerCost %d, reward %d, reach %d:  survived %.0f%%, " +
+                              "%.1f s, %.1f leaks, %.1f kills, %.1f towers, %.0f money%n",
+                              first.waveNumber, first.towerCost, first.reward, first.reach,
+                              100.0 * survived / count, ticks / count * STEP, leaks / count,
+                              kills / count, towers / count, money / count);
+        }
+    }
+
+    /**
+     * The settings and results of one game in the batch.
+     */
+    private static class Trial
+    {
+        final int number;
+        final long seed;
+        final int waveNumber;
+        final WaveTimeline waves;
+        final int towerCost, reward, reach;
+
+        int ticks, leaks, kills, towers, finalMoney;
+        boolean survived;
+        int[] moneyCurve, towerKills;
+
+        Trial (int number, long seed, int waveNumber, WaveTimeline waves, int towerCost, int reward, int reach)
+        {
+            this.number = number;
+            this.seed = seed;
+            this.waveNumber = waveNumber;
+            this.waves = waves;
+            this.towerCost = towerCost;
+            this.reward = reward;
+            this.reach = reach;
+        }
+
+        /**
+         * Plays the game until the lives run out or time is up.
+         */
+        void play (PathPoints path, int maxTicks)
+        {
+            GameSimulation sim = new GameSimulation(path, GameClock.SYSTEM);
+            sim.setWaves(waves.copy());   // (Each game walks its own copy)
+            sim.towerCost = towerCost;
+            sim.killReward = reward;
+            sim.setCommandSource(new RandomPlacementPolicy(seed, sim.pathDistance, reach));
+
+            int[] samples = new int[maxTicks / TICKS_PER_SAMPLE + 1];
+            int sampleCount = 0;
+
+            while (ticks < maxTicks && sim.lives > 0)
+            {
+                if (ticks % TICKS_PER_SAMPLE == 0)
+                    samples[sampleCount++] = sim.money;
+
+                sim.step(STEP);
+                ticks++;
+            }
+
+            survived = sim.lives > 0;
+            leaks = sim.leaks;
+            kills = sim.kills;
+            towers = sim.towers.size();
+            finalMoney = sim.money;
+            moneyCurve = Arrays.copyOf(samples, sampleCount);
+
+            towerKills = new int[towers];
+            for (int t = 0; t < towers; t++)
+                towerKills[t] = sim.getTowerKills(t);
+        }
+    }
+}
@@ -0,0 +1,245 @@
+/**
+ * 
+ */
+package game;
+
+import java.util.Arrays;
+
+/**
+ * Changes to the game that are requested during a tick, but carried
+ * out at the end of it.  Towers and effects never change the shared
+ * game state (the enemy store, the effect list, the money) while the
+ * tick is running.  They record what they want here instead, and
+ * apply() makes all of the changes in one pass, in a fixed order:
+ *
+ *   - kills (each paying its reward, and counted for the tower that
+ *     made it, if the enemy was still alive),
+ *   - towers going to sleep while they reload,
+ *   - new crystals, then new enemies,
+ *   - and finally the removal of every killed enemy.
+ *
+ * Because nothing moves during the tick, the result does not depend
+ * on the order in which towers and effects are visited.
+ */
+public class CommandBuffer
+{
+    private int[] killHandles, killRewards, killTowers;
+    private int killCount;
+
+    private byte[] spawnTypes;
+    private double[] spawnHeadStarts;   // How far along the path each new enemy starts
+    private int spawnCount;
+
+    private int[] crystals;      // x, y, targetX, targetY, tower for each crystal
+    private int crystalCount;
+
+    private int[] reloadTowers;  // Towers that fired, and how long they take to reload
+    private double[] reloadTimes;
+    private int reloadCount;
+
+    private static final EnemyType[] ENEMY_TYPES = EnemyType.values();
+
+    /**
+     * Builds an empty buffer.
+     */
+    public CommandBuffer ()
+    {
+        killHandles = new int[16];
+        killRewards = new int[16];
+        killTowers = new int[16];
+        spawnTypes = new byte[16];
+        spawnHeadStarts = new double[16];
+        crystals = new int[5 * 16];
+        reloadTowers = new int[16];
+        reloadTimes = new double[16];
+    }
+
+    /**
+     * Requests that an enemy be killed, paying a reward for it.  If
+     * the enemy is already dead when the buffer is applied (another
+     * effect got it first), nothing happens and nothing is paid.
+     *
+     * @param enemyHandle  a handle from EnemyStore.getHandle()
+     * @param reward       the money paid for the kill
+     * @param tower        the number of the tower making the kill, or -1
+     */
+    public void kill (int enemyHandle, int reward, int tower)
+    {
+        if (killCount == killHandles.length)
+        {
+            killHandles = Arrays.copyOf(killHandles, killCount * 2);
+            killRewards = Arrays.copyOf(killRewards, killCount * 2);
+            killTowers = Arrays.copyOf(killTowers, killCount * 2);
+        }
+
+        killHandles[killCount] = enemyHandle;
+        killRewards[killCount] = reward;
+        killTowers[killCount] = tower;
+        killCount++;
+    }
+
+    /**
+     * Requests a new enemy at the start of the path.
+     *
+     * @param t  the kind of enemy
+     */
+    public void spawnEnemy (EnemyType t)
+    {
+        spawnEnemy(t, 0);
+    }
+
+    /**
+     * Requests a new enemy part of the way along the path.  (An enemy
+     * that was due a little before the end of the tick starts where it
+     * would have been by now.)
+     *
+     * @param t          the kind of enemy
+     * @param headStart  the distance along the path to start at, in pixels
+     */
+    public void spawnEnemy (EnemyType t, double headStart)
+    {
+        if (spawnCount == spawnTypes.length)
+        {
+            spawnTypes = Arrays.copyOf(spawnTypes, spawnCount * 2);
+            spawnHeadStarts = Arrays.copyOf(spawnHeadStarts, spawnCount * 2);
+        }
+
+        spawnTypes[spawnCount] = (byte) t.ordinal();
+        spawnHeadStarts[spawnCount] = headStart;
+        spawnCount++;
+    }
+
+    /**
+     * Requests a new salt crystal.
+     *
+     * @param x        the starting x location
+     * @param y        the starting y location
+     * @param targetX  the x location the crystal is thrown toward
+     * @param targetY  the y location the crystal is thrown toward
+     * @param tower    the number of the tower throwing it
+     */
+    public void spawnCrystal (int x, int y, int targetX, int targetY, int tower)
+    {
+        if (5 * crystalCount == crystals.length)
+            crystals = Arrays.copyOf(crystals, crystals.length * 2);
+
+        int k = 5 * crystalCount++;
+        crystals[k] = x;
+        crystals[k + 1] = y;
+        crystals[k + 2] = targetX;
+        crystals[k + 3] = targetY;
+        crystals[k + 4] = tower;
+    }
+
+    /**
+     * Requests that a tower that has fired sleep while it reloads.  It
+     * is not run again until the time is up.
+     *
+     * @param tower    the number of the tower
+     * @param seconds  how long it takes to reload
+     */
+    public void reload (int tower, double seconds)
+    {
+        if (reloadCount == reloadTowers.length)
+        {
+            reloadTowers = Arrays.copyOf(reloadTowers, reloadCount * 2);
+            reloadTimes = Arrays.copyOf(reloadTimes, reloadCount * 2);
+        }
+
+        reloadTowers[reloadCount] = tower;
+        reloadTimes[reloadCount] = seconds;
+        reloadCount++;
+    }
+
+    /**
+     * Adds every request in another buffer to the end of this one (in
+     * the order they were made), then empties the other buffer.  The
+     * parallel tick uses this to gather the requests of each worker,
+     * always in the same order, so the result matches a serial tick.
+     *
+     * @param other  the buffer to take the requests from
+     */
+    public void append (CommandBuffer other)
+    {
+        for (int k = 0; k < other.killCount; k++)
+            kill(other.killHandles[k], other.killRewards[k], other.killTowers[k]);
+
+        for (int k = 0; k < other.spawnCount; k++)
+            spawnEnemy(ENEMY_TYPES[other.spawnTypes[k]], other.spawnHeadStarts[k]);
+
+        for (int k = 0; k < 5 * other.crystalCount; k += 5)
+            spawnCrystal(other.crystals[k], other.crystals[k + 1], other.crystals[k + 2],
+                         other.crystals[k + 3], other.crystals[k + 4]);
+
+        for (int k = 0; k < other.reloadCount; k++)
+            reload(other.reloadTowers[k], other.reloadTimes[k]);
+
+        other.clear();
+    }
+
+    /**
+     * Returns true if nothing has been requested since the last apply.
+     *
+     * @return true if the buffer is empty
+     */
+    public boolean isEmpty ()
+    {
+        return killCount == 0 && spawnCount == 0 && crystalCount == 0 && reloadCount == 0;
+    }
+
+    /**
+     * Makes every requested change, then empties the buffer.
+     *
+     * @param g  the simulation to change
+     */
+    public void apply (GameSimulation g)
+    {
+        // Kills, and the money for them.
+
+        for (int k = 0; k < killCount; k++)
+            if (g.enemies.killHandle(killHandles[k]))
+            {
+                g.money += killRewards[k];
+                g.countKill(killTowers[k]);
+                g.events.kill(killHandles[k], killTowers[k], killRewards[k]);
+            }
+
+        // Towers that fired go to sleep.
+
+        for (int k = 0; k < reloadCount; k++)
+            g.reloadTower(reloadTowers[k], reloadTimes[k]);
+
+        // New crystals, then new enemies.
+
+        for (int k = 0; k < 5 * crystalCount; k += 5)
+        {
+            SaltCrystal crystal = g.effectPool.acquire();
+            crystal.init(crystals[k], crystals[k + 1], crystals[k + 2], crystals[k + 3], crystals[k + 4]);
+            g.addEffect(crystal);
+            g.events.shot(crystals[k + 4], crystals[k], crystals[k + 1], crystals[k + 2], crystals[k + 3]);
+        }
+
+        for (int k = 0; k < spawnCount; k++)
+        {
+            int i = g.enemies.spawn(ENEMY_TYPES[spawnTypes[k]], spawnHeadStarts[k]);
+            g.events.spawn(g.enemies.getHandle(i), ENEMY_TYPES[spawnTypes[k]], spawnHeadStarts[k]);
+        }
+
+        // Finally, throw away the enemies that were killed.
+
+        g.enemies.compact();
+
+        clear();
+    }
+
+    /**
+     * Forgets every request without applying it.
+     */
+    public void clear ()
+    {
+        killCount = 0;
+        spawnCount = 0;
+        crystalCount = 0;
+        reloadCount = 0;
+    }
+}
@@ -0,0 +1,19 @@
+/**
+ * 
+ */
+package game;
+
+/**
+ * Anything that feeds player commands into the simulation.  The
+ * simulation polls its command source once per tick, at the point
+ * where towers are placed.
+ */
+public interface CommandSource
+{
+    /**
+     * Issues any pending commands for this tick.
+     *
+     * @param commands  the commands accepted by the simulation
+     */
+    public void issueCommands (TowerCommands commands);
+}
@@ -0,0 +1,227 @@
+/**
+ * 
+ */
+package game;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * The distance from every pixel of the play field to the path, worked
+ * out once when the path is loaded.  After that, "is this spot far
+ * enough from the path to build on?" is a single array read, no matter
+ * how many points the path has.
+ *
+ * Distances are stored one byte per pixel, rounded to whole pixels and
+ * capped at 255.  They are measured from each pixel to the nearest of
+ * a dense set of points along the path, so they are within a pixel of
+ * the true distance.
+ */
+public class DistanceField
+{
+    /* Static fields and methods */
+
+    static final int MAX_DISTANCE = 255;
+    static final int MARGIN = 64;           // The path just off the field still counts
+    static final double SAMPLE_STEP = 0.25; // Spacing of the points taken along the path
+    static final double INFINITY = 1e20;
+
+    /* Object fields and methods */
+
+    private int width, height;
+    private byte[] distance;   // Row by row, unsigned
+
+    /**
+     * Builds the distance field for a path.
+     *
+     * @param path    the path
+     * @param width   the width of the play field, in pixels
+     * @param height  the height of the play field, in pixels
+     */
+    public DistanceField (PathPoints path, int width, int height)
+    {
+        this.width = width;
+        this.height = height;
+
+        // Work on a grid a little larger than the field, so that parts of
+        //   the path just outside the field are measured too.
+
+        int w = width + 2 * MARGIN;
+        int h = height + 2 * MARGIN;
+        double[] squared = new double[w * h];
+        Arrays.fill(squared, INFINITY);
+
+        // Mark every grid point that lies on the path.
+
+        for (int i = 0; i < path.path.size() - 1; i++)
+        {
+            Coordinate start = path.path.get(i);
+            Coordinate end = path.path.get(i+1);
+
+            double dx = end.x - start.x;
+            double dy = end.y - start.y;
+            int steps = (int) Math.ceil(Math.sqrt(dx * dx + dy * dy) / SAMPLE_STEP);
+
+            for (int k = 0; k <= steps; k++)
+            {
+                double t = steps == 0 ? 0 : (double) k / steps;
+                int gx = (int) Math.round(start.x + dx * t) + MARGIN;
+                int gy = (int) Math.round(start.y + dy * t) + MARGIN;
+
+                if (gx >= 0 && gx < w && gy >= 0 && gy < h)
+                    squared[gy * w + gx] = 0;
+            }
+        }
+
+        if (path.path.size() == 1)
+        {
+            int gx = path.path.get(0).x + MARGIN;
+            int gy = path.path.get(0).y + MARGIN;
+
+            if (gx >= 0 && gx < w && gy >= 0 && gy < h)
+                squared[gy * w + gx] = 0;
+        }
+
+        // Spread the distances out from the path:  first down each
+        //   column, then along each row.
+
+        transform(squared, w, h);
+
+        // Keep the part that covers the field, as rounded bytes.
+
+        distance = new byte[width * height];
+
+        for (int y = 0; y < height; y++)
+            for (int x = 0; x < width; x++)
+            {
+                double d = Math.sqrt(squared[(y + MARGIN) * w + x + MARGIN]);
+                distance[y * width + x] = (byte) Math.min(MAX_DISTANCE, (int) Math.round(d));
+            }
+    }
+
+    /**
+     * Returns the distance (in pixels, capped at 255) from a point on
+     * the field to the path.  Points off the field return 0.
+     *
+     * @param x  the x location
+     * @param y  the y location
+     * @return the distance to the path
+     */
+    public int distanceAt (int x, int y)
+    {
+        if (x < 0 || x >= width || y < 0 || y >= height)
+            return 0;
+
+        return distance[y * width + x] & 0xFF;
+    }
+
+    /**
+     * Returns true if a point is on the field and more than the given
+     * distance away from the path.
+     *
+     * @param x          the x location
+     * @param y          the y location
+     * @param clearance  the distance that must be kept from the path
+     * @return true if a tower may be built there
+     */
+    public boolean isBuildable (int x, int y, int clearance)
+    {
+        return distanceAt(x, y) > clearance;
+    }
+
+    /**
+     * Builds an image the size of the field that covers every spot that
+     * is not buildable with the given color (and leaves the rest clear).
+     * Draw it over the field while the player is placing a tower.
+     *
+     * @param clearance  the distance that must be kept from the path
+     * @param blocked    the color of the spots that are not buildable
+     * @return the overlay image
+     */
+    public BufferedImage buildOverlay (int clearance, Color blocked)
+    {
+        int[] pixels = new int[width * height];
+        int argb = blocked.getRGB();
+
+        for (int i = 0; i < pixels.length; i++)
+            if ((distance[i] & 0xFF) <= clearance)
+                pixels[i] = argb;
+
+        BufferedImage overlay = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        overlay.setRGB(0, 0, width, height, pixels, 0, width);
+
+        return overlay;
+    }
+
+    /* Helpers */
+
+    /**
+     * Turns a grid of 0 (on the path) and INFINITY (everywhere else)
+     * into squared distances to the nearest 0, using the exact two-pass
+     * method of Felzenszwalb and Huttenlocher.
+     */
+    private static void transform (double[] grid, int w, int h)
+    {
+        int n = Math.max(w, h);
+        double[] f = new double[n];
+        double[] d = new double[n];
+        int[] v = new int[n];
+        double[] z = new double[n + 1];
+
+        for (int x = 0; x < w; x++)
+        {
+            for (int y = 0; y < h; y++)
+                f[y] = grid[y * w + x];
+
+            transform1D(f, d, v, z, h);
+
+            for (int y = 0; y < h; y++)
+                grid[y * w + x] = d[y];
+        }
+
+        for (int y = 0; y < h; y++)
+        {
+            System.arraycopy(grid, y * w, f, 0, w);
+            transform1D(f, d, v, z, w);
+            System.arraycopy(d, 0, grid, y * w, w);
+        }
+    }
+
+    /**
+     * The one dimensional squared distance transform:  the lower envelope
+     * of the parabolas rooted at each sample of f.
+     */
+    private static void transform1D (double[] f, double[] d, int[] v, double[] z, int n)
+    {
+        int k = 0;
+        v[0] = 0;
+        z[0] = -INFINITY;
+        z[1] = INFINITY;
+
+        for (int q = 1; q < n; q++)
+        {
+            double s = ((f[q] + q * q) - (f[v[k]] + v[k] * v[k])) / (2.0 * q - 2.0 * v[k]);
+
+            while (s <= z[k])
+            {
+                k--;
+                s = ((f[q] + q * q) - (f[v[k]] + v[k] * v[k])) / (2.0 * q - 2.0 * v[k]);
+            }
+
+            k++;
+            v[k] = q;
+            z[k] = s;
+            z[k + 1] = INFINITY;
+        }
+
+        k = 0;
+        for (int q = 0; q < n; q++)
+        {
+            while (z[k + 1] < q)
+                k++;
+
+            d[q] = (q - v[k]) * (double) (q - v[k]) + f[v[k]];
+        }
+    }
+}
@@ -12,21 +12,55 @@ public interface Effect {
 	
 	/**
 	 * Controls the effect motion, interact with other game objects
-	 * Keep track of the effect duration
+	 * Changes to the game are recorded in the worker's command buffer
 	 * @param graphics g
+	 * @param TickWorker w
 	 * @param double deltaTime
 	 */
-	void interact (Game g, double deltaTime);
+	void interact (GameSimulation g, TickWorker w, double deltaTime);
 	
 	/**
-	 * Returns true when the effect should be removed
-	 * @return boolean 
+	 * Returns how long the effect lasts.  The simulation sets a timer
+	 * when the effect is added, and removes it when the time is up
+	 * @return double (seconds)
 	 */
-	boolean isDone ();
+	double getLifetime ();
 	
 	/**
-	 * Draws the effect
+	 * Returns the current x location of the effect
+	 * (a primitive, so the game loop never has to build a Coordinate)
+	 * @return int
+	 */
+	int getX ();
+	
+	/**
+	 * Returns the current y location of the effect
+	 * @return int
+	 */
+	int getY ();
+	
+	/**
+	 * Returns the x location of the effect before the last step
+	 * @return int
+	 */
+	int getPreviousX ();
+	
+	/**
+	 * Returns the y location of the effect before the last step
+	 * @return int
+	 */
+	int getPreviousY ();
+	
+	/**
+	 * Returns the picture the effect is drawn with
+	 * @return Sprite
+	 */
+	Sprite getSprite ();
+	
+	/**
+	 * Draws the effect between its previous and current positions
 	 * @param graphics g
+	 * @param double alpha (0 = previous position, 1 = current position)
 	 */
-	void draw (Graphics g);
+	void draw (Graphics g, double alpha);
 }
@@ -0,0 +1,158 @@
+/**
+ * 
+ */
+package game;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A pool of SaltCrystal effects.  Towers throw a crystal every couple
+ * of seconds, and each one only lives for a second and a half, so
+ * instead of building a new crystal for every shot we recycle the
+ * old ones.
+ *
+ * Every crystal has a slot in the pool, and the pool remembers which
+ * slots have been used before, for its statistics.  (Nothing keeps a
+ * crystal past its release, so crystals need no handles.)
+ */
+public class EffectPool
+{
+    private SaltCrystal[] crystals;   // The crystal in each slot
+    private boolean[] used;           // True once a slot has been handed out
+    private int[] freeSlots;          // Slots waiting to be reused
+    private int freeCount;
+    private PoolStats stats;
+
+    /**
+     * Builds a pool with some crystals ready to go.
+     *
+     * @param capacity  the number of crystals to build up front
+     */
+    public EffectPool (int capacity)
+    {
+        stats = new PoolStats();
+        crystals = new SaltCrystal[0];
+        used = new boolean[0];
+        freeSlots = new int[0];
+
+        grow(Math.max(1, capacity));
+    }
+
+    /**
+     * Takes a crystal out of the pool.  The caller must init() it.
+     *
+     * @return a crystal that is not in use
+     */
+    public SaltCrystal acquire ()
+    {
+        if (freeCount == 0)
+        {
+            grow(crystals.length * 2);
+            stats.grown++;
+        }
+
+        int slot = freeSlots[--freeCount];
+        stats.acquired(used[slot]);
+        used[slot] = true;
+
+        return crystals[slot];
+    }
+
+    /**
+     * Returns a crystal to the pool.
+     *
+     * @param crystal  a crystal from acquire()
+     */
+    public void release (SaltCrystal crystal)
+    {
+        freeSlots[freeCount++] = crystal.poolSlot;
+        stats.released();
+    }
+
+    /**
+     * Returns the pool statistics.
+     *
+     * @return the statistics (updated in place)
+     */
+    public PoolStats getStats ()
+    {
+        stats.capacity = crystals.length;
+        return stats;
+    }
+
+    /**
+     * Returns the crystal in a slot (used to restore a saved game).
+     *
+     * @param slot  the slot
+     * @return the crystal
+     */
+    SaltCrystal getCrystal (int slot)
+    {
+        return crystals[slot];
+    }
+
+    /**
+     * Writes the pool, and every crystal in it, to a saved game (see
+     * SaveGame).
+     *
+     * @param out  the buffer to write to
+     */
+    void saveState (ByteBuffer out)
+    {
+        out.putInt(crystals.length);
+        SaveGame.putBooleans(out, used, crystals.length);
+        SaveGame.putInts(out, freeSlots, freeCount);
+
+        for (SaltCrystal crystal : crystals)
+            crystal.saveState(out);
+    }
+
+    /**
+     * Replaces the pool with the one in a saved game.
+     *
+     * @param in  the buffer to read from
+     */
+    void restoreState (ByteBuffer in)
+    {
+        int size = in.getInt();
+        if (size < 0 || size > in.remaining())
+            throw new IllegalArgumentException("A damaged saved game");
+
+        if (crystals.length < size)
+            grow(size);
+
+        SaveGame.getBooleans(in, used);
+        freeCount = SaveGame.getInts(in, freeSlots);
+
+        for (int slot = 0; slot < size; slot++)
+            crystals[slot].restoreState(in);
+
+        // If this pool is bigger than the saved one, the extra slots are free.
+
+        for (int slot = size; slot < crystals.length; slot++)
+            freeSlots[freeCount++] = slot;
+    }
+
+    /* Helpers */
+
+    private void grow (int size)
+    {
+        int old = crystals.length;
+
+        crystals = Arrays.copyOf(crystals, size);
+        used = Arrays.copyOf(used, size);
+        freeSlots = Arrays.copyOf(freeSlots, size);
+
+        // Build the new crystals, and put them on the free list so
+        //   that the lowest slots are handed out first.
+
+        for (int slot = size - 1; slot >= old; slot--)
+        {
+            crystals[slot] = new SaltCrystal();
+            crystals[slot].poolSlot = slot;
+            freeSlots[freeCount++] = slot;
+            stats.created++;
+        }
+    }
+}
@@ -13,5 +13,17 @@ public interface Enemy
 {
     public void update (double deltaTime);
     public PathPosition getPos ();
-    public void draw (Graphics g);
+    
+    /* Primitive accessors, so the game loop never has to build a Coordinate. */
+    
+    public double getX ();
+    public double getY ();
+    
+    /**
+     * Draws the enemy between its previous and current positions.
+     * 
+     * @param g      a graphics object
+     * @param alpha  0 for the previous position, 1 for the current one
+     */
+    public void draw (Graphics g, double alpha);
 }
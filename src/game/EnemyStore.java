@@ -0,0 +1,517 @@
+/**
+ * 
+ */
+package game;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Holds every enemy in the game.  Instead of one object per enemy,
+ * each property is kept in its own array (type, distance along the
+ * path, speed, alive flag, and the (x, y) location found during the
+ * last advance), and enemy number i is the i-th entry of every array.
+ * Looping over thousands of enemies then walks straight through memory.
+ *
+ * Killed enemies are only flagged during a tick; compact() removes
+ * them afterward by moving the last enemy into each hole, so enemy
+ * numbers stay valid until the end of the tick.
+ *
+ * The arrays are a pool:  they only grow (up to Handle.MAX_SLOTS, the
+ * most enemies a handle can number), and the entries of removed
+ * enemies are reused by new ones.  Code that needs to remember an
+ * enemy for longer than a tick keeps a handle (see getHandle), which
+ * stops working as soon as the enemy is removed, even after its slot
+ * has been reused.
+ *
+ * Code that prefers to work with Enemy objects can use get(), which
+ * returns a view of one enemy number.
+ */
+public class EnemyStore
+{
+    private static final EnemyType[] ENEMY_TYPES = EnemyType.values();
+
+    private PathPoints path;      // Shared by every enemy
+    private double pathLength;
+
+    private byte[]    type;
+    private double[]  distance;          // Distance along the path
+    private int[]     segment;           // The path segment that holds the distance
+    private double[]  previousDistance;  // Where the enemy was before the last advance
+    private int[]     previousSegment;
+    private double[]  speed;
+    private boolean[] alive;
+    private double[]  x, y;
+    private int[]     slotOf;            // The handle slot of each enemy
+    private int count;
+
+    private int[] denseOf;      // The enemy number that uses each handle slot
+    private int[] generation;   // The generation of each handle slot
+    private int[] freeSlots;    // Handle slots waiting to be reused
+    private int freeCount, slotCount;
+
+    private EnemyView[] views;
+    private PoolStats stats;
+
+    /**
+     * Builds an empty store for enemies that follow the given path.
+     *
+     * @param path      the path the enemies follow
+     * @param capacity  the number of enemies to make room for up front
+     *                  (no more than Handle.MAX_SLOTS is used)
+     */
+    public EnemyStore (PathPoints path, int capacity)
+    {
+        this.path = path;
+        this.pathLength = path.getLength();
+
+        stats = new PoolStats();
+        allocate(Math.max(1, Math.min(capacity, Handle.MAX_SLOTS)));
+    }
+
+    /**
+     * Returns the number of enemies, including any killed this tick.
+     *
+     * @return the number of enemies
+     */
+    public int size ()
+    {
+        return count;
+    }
+
+    /**
+     * Adds an enemy at the start of the path.
+     *
+     * @param t  the kind of enemy
+     * @return the enemy number
+     * @throws IllegalStateException if the store already holds
+     *         Handle.MAX_SLOTS enemies
+     */
+    public int spawn (EnemyType t)
+    {
+        if (count == type.length)
+        {
+            if (count == Handle.MAX_SLOTS)
+                throw new IllegalStateException("More than " + Handle.MAX_SLOTS + " enemies");
+
+            allocate(Math.min(count * 2, Handle.MAX_SLOTS));
+            stats.grown++;
+        }
+
+        int i = count++;
+
+        // Give the enemy a handle slot, reusing an old one if we can.
+
+        boolean recycled = freeCount > 0;
+        int slot = recycled ? freeSlots[--freeCount] : slotCount++;
+
+        slotOf[i] = slot;
+        denseOf[slot] = i;
+        stats.acquired(recycled);
+        if (!recycled)
+            stats.created++;
+
+        type[i] = (byte) t.ordinal();
+        distance[i] = 0;
+        segment[i] = 0;
+        previousDistance[i] = 0;
+        previousSegment[i] = 0;
+        speed[i] = t.velocity;
+        alive[i] = true;
+        x[i] = path.getX(0, 0);
+        y[i] = path.getY(0, 0);
+
+        return i;
+    }
+
+    /**
+     * Adds an enemy part of the way along the path, as if it had
+     * already been moving for a while.
+     *
+     * @param t          the kind of enemy
+     * @param headStart  the distance along the path to start at
+     * @return the enemy number
+     */
+    public int spawn (EnemyType t, double headStart)
+    {
+        int i = spawn(t);
+
+        if (headStart > 0)
+        {
+            advance(i, headStart);
+            previousDistance[i] = distance[i];   // It was not seen moving there
+            previousSegment[i] = segment[i];
+        }
+
+        return i;
+    }
+
+    /**
+     * Moves every living enemy along the path, and updates its
+     * (x, y) location.
+     *
+     * @param deltaTime  the number of seconds to move
+     */
+    public void advance (double deltaTime)
+    {
+        advance(0, count, deltaTime);
+    }
+
+    /**
+     * Moves the living enemies numbered from 'from' up to (not
+     * including) 'to' along the path.  Each enemy only touches its
+     * own entries, so separate ranges can be moved by separate threads.
+     *
+     * @param from       the first enemy number
+     * @param to         one past the last enemy number
+     * @param deltaTime  the number of seconds to move
+     */
+    public void advance (int from, int to, double deltaTime)
+    {
+        for (int i = from; i < to; i++)
+            if (alive[i])
+                advance(i, speed[i] * deltaTime);
+    }
+
+    /**
+     * Moves one enemy the given distance along the path, and updates
+     * its (x, y) location.
+     *
+     * @param i         the enemy number
+     * @param distance  the distance to travel along the path
+     */
+    public void advance (int i, double distance)
+    {
+        double d = Math.min(this.distance[i] + distance, pathLength);
+        int seg = path.findSegment(d, segment[i]);
+
+        previousDistance[i] = this.distance[i];
+        previousSegment[i] = segment[i];
+
+        this.distance[i] = d;
+        segment[i] = seg;
+        x[i] = path.getX(d, seg);
+        y[i] = path.getY(d, seg);
+    }
+
+    /**
+     * Returns true if the enemy cannot be advanced any further.
+     *
+     * @param i  the enemy number
+     * @return true if the enemy is at the end of the path
+     */
+    public boolean isAtTheEnd (int i)
+    {
+        return distance[i] >= pathLength;
+    }
+
+    /**
+     * Flags an enemy as killed.  It stays in the store (with the
+     * same number) until compact() is called.
+     *
+     * @param i  the enemy number
+     */
+    public void kill (int i)
+    {
+        alive[i] = false;
+    }
+
+    /**
+     * Kills the enemy a handle refers to, if it is still alive.
+     *
+     * @param handle  a handle from getHandle()
+     * @return true if the enemy was alive (and is now killed), false if
+     *         it was already killed or the handle is stale
+     */
+    public boolean killHandle (int handle)
+    {
+        int i = resolve(handle);
+        if (i < 0 || !alive[i])
+            return false;
+
+        alive[i] = false;
+        return true;
+    }
+
+    /**
+     * Returns a handle for an enemy.  Unlike the enemy number, the
+     * handle stays valid until the enemy is removed, and never refers
+     * to a different enemy.
+     *
+     * @param i  the enemy number
+     * @return the handle
+     */
+    public int getHandle (int i)
+    {
+        return Handle.make(slotOf[i], generation[slotOf[i]]);
+    }
+
+    /**
+     * Finds the enemy a handle refers to.
+     *
+     * @param handle  a handle from getHandle()
+     * @return the enemy number, or -1 if the enemy has been removed
+     */
+    public int resolve (int handle)
+    {
+        if (handle < 0)
+            return -1;
+
+        int slot = Handle.slot(handle);
+        if (slot >= slotCount || generation[slot] != Handle.generation(handle))
+            return -1;
+
+        return denseOf[slot];
+    }
+
+    /**
+     * Returns the pool statistics for the enemy arrays.
+     *
+     * @return the statistics (updated in place)
+     */
+    public PoolStats getStats ()
+    {
+        stats.capacity = type.length;
+        return stats;
+    }
+
+    /**
+     * Returns true if the enemy has not been killed.
+     *
+     * @param i  the enemy number
+     * @return true if the enemy is alive
+     */
+    public boolean isAlive (int i)
+    {
+        return alive[i];
+    }
+
+    /**
+     * Removes every killed enemy.  Each hole is filled by moving the
+     * last enemy into it, so this changes enemy numbers.
+     */
+    public void compact ()
+    {
+        int i = 0;
+        while (i < count)
+        {
+            if (alive[i])
+            {
+                i++;
+                continue;
+            }
+
+            int last = --count;
+
+            // Retire the enemy's handle slot.  Bumping the generation makes
+            //   any handle to it stale.
+
+            int slot = slotOf[i];
+            generation[slot] = Handle.next(generation[slot]);
+            freeSlots[freeCount++] = slot;
+            stats.released();
+
+            if (i == last)
+                break;
+
+            type[i] = type[last];
+            distance[i] = distance[last];
+            segment[i] = segment[last];
+            previousDistance[i] = previousDistance[last];
+            previousSegment[i] = previousSegment[last];
+            speed[i] = speed[last];
+            alive[i] = alive[last];
+            x[i] = x[last];
+            y[i] = y[last];
+            slotOf[i] = slotOf[last];
+            denseOf[slotOf[i]] = i;
+        }
+    }
+
+    /**
+     * Returns the kind of an enemy.
+     *
+     * @param i  the enemy number
+     * @return the enemy type
+     */
+    public EnemyType getType (int i)
+    {
+        return ENEMY_TYPES[type[i]];
+    }
+
+    /**
+     * Returns how far along the path an enemy is.
+     *
+     * @param i  the enemy number
+     * @return the distance from the start of the path, in pixels
+     */
+    public double getProgress (int i)
+    {
+        return distance[i];
+    }
+
+    /**
+     * Returns the x location of an enemy after the last advance.
+     *
+     * @param i  the enemy number
+     * @return the x location
+     */
+    public double getX (int i)
+    {
+        return x[i];
+    }
+
+    /**
+     * Returns the y location of an enemy after the last advance.
+     *
+     * @param i  the enemy number
+     * @return the y location
+     */
+    public double getY (int i)
+    {
+        return y[i];
+    }
+
+    /**
+     * Returns the x location of an enemy between the previous and
+     * current advance.
+     *
+     * @param i      the enemy number
+     * @param alpha  0 for the previous location, 1 for the current one
+     * @return the x location
+     */
+    public double getInterpolatedX (int i, double alpha)
+    {
+        double d = previousDistance[i] + (distance[i] - previousDistance[i]) * alpha;
+        return path.getX(d, path.findSegment(d, previousSegment[i]));
+    }
+
+    /**
+     * Returns the y location of an enemy between the previous and
+     * current advance.
+     *
+     * @param i      the enemy number
+     * @param alpha  0 for the previous location, 1 for the current one
+     * @return the y location
+     */
+    public double getInterpolatedY (int i, double alpha)
+    {
+        double d = previousDistance[i] + (distance[i] - previousDistance[i]) * alpha;
+        return path.getY(d, path.findSegment(d, previousSegment[i]));
+    }
+
+    /**
+     * Returns an Enemy view of one enemy number.  The view always
+     * refers to the number, not to the enemy, so it should not be
+     * kept past the end of a tick.
+     *
+     * @param i  the enemy number
+     * @return the view
+     */
+    public Enemy get (int i)
+    {
+        if (views[i] == null)
+            views[i] = new EnemyView(this, i);
+
+        return views[i];
+    }
+
+    /**
+     * Builds a path position object for an enemy.
+     *
+     * @param i  the enemy number
+     * @return the path position
+     */
+    public PathPosition getPos (int i)
+    {
+        return new PathPosition(path, distance[i]);
+    }
+
+    /**
+     * Writes every enemy, and the handle slots, to a saved game (see
+     * SaveGame).  The (x, y) locations are not written; they follow
+     * from the distances.
+     *
+     * @param out  the buffer to write to
+     */
+    void saveState (ByteBuffer out)
+    {
+        out.putInt(count);
+        out.putInt(slotCount);
+
+        SaveGame.putBytes(out, type, count);
+        SaveGame.putDoubles(out, distance, count);
+        SaveGame.putInts(out, segment, count);
+        SaveGame.putDoubles(out, previousDistance, count);
+        SaveGame.putInts(out, previousSegment, count);
+        SaveGame.putDoubles(out, speed, count);
+        SaveGame.putBooleans(out, alive, count);
+        SaveGame.putInts(out, slotOf, count);
+
+        SaveGame.putInts(out, denseOf, slotCount);
+        SaveGame.putInts(out, generation, slotCount);
+        SaveGame.putInts(out, freeSlots, freeCount);
+    }
+
+    /**
+     * Replaces every enemy with the ones in a saved game.
+     *
+     * @param in  the buffer to read from
+     */
+    void restoreState (ByteBuffer in)
+    {
+        int n = in.getInt();
+        int slots = in.getInt();
+        if (n < 0 || slots < n || slots > in.remaining() || slots > Handle.MAX_SLOTS)
+            throw new IllegalArgumentException("A damaged saved game");
+
+        if (type.length < slots)
+            allocate(slots);
+
+        count = n;
+        slotCount = slots;
+
+        SaveGame.getBytes(in, type);
+        for (int i = 0; i < count; i++)
+            if (type[i] < 0 || type[i] >= ENEMY_TYPES.length)
+                throw new IllegalArgumentException("A damaged saved game");
+        SaveGame.getDoubles(in, distance);
+        SaveGame.getInts(in, segment);
+        SaveGame.getDoubles(in, previousDistance);
+        SaveGame.getInts(in, previousSegment);
+        SaveGame.getDoubles(in, speed);
+        SaveGame.getBooleans(in, alive);
+        SaveGame.getInts(in, slotOf);
+
+        SaveGame.getInts(in, denseOf);
+        SaveGame.getInts(in, generation);
+        freeCount = SaveGame.getInts(in, freeSlots);
+
+        for (int i = 0; i < count; i++)
+        {
+            x[i] = path.getX(distance[i], segment[i]);
+            y[i] = path.getY(distance[i], segment[i]);
+        }
+    }
+
+    /* Helpers */
+
+    private void allocate (int size)
+    {
+        type = type == null ? new byte[size] : Arrays.copyOf(type, size);
+        distance = distance == null ? new double[size] : Arrays.copyOf(distance, size);
+        segment = segment == null ? new int[size] : Arrays.copyOf(segment, size);
+        previousDistance = previousDistance == null ? new double[size] : Arrays.copyOf(previousDistance, size);
+        previousSegment = previousSegment == null ? new int[size] : Arrays.copyOf(previousSegment, size);
+        speed = speed == null ? new double[size] : Arrays.copyOf(speed, size);
+        alive = alive == null ? new boolean[size] : Arrays.copyOf(alive, size);
+        x = x == null ? new double[size] : Arrays.copyOf(x, size);
+        y = y == null ? new double[size] : Arrays.copyOf(y, size);
+        slotOf = slotOf == null ? new int[size] : Arrays.copyOf(slotOf, size);
+        views = views == null ? new EnemyView[size] : Arrays.copyOf(views, size);
+
+        denseOf = denseOf == null ? new int[size] : Arrays.copyOf(denseOf, size);
+        generation = generation == null ? new int[size] : Arrays.copyOf(generation, size);
+        freeSlots = freeSlots == null ? new int[size] : Arrays.copyOf(freeSlots, size);
+    }
+}
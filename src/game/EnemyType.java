@@ -0,0 +1,39 @@
+/**
+ * 
+ */
+package game;
+
+import java.awt.Image;
+
+/**
+ * The kinds of enemies in the game, and the numbers that describe
+ * them.  (These used to be the Snail and SCargo classes.)
+ */
+public enum EnemyType
+{
+    SNAIL  (72,  Sprite.SNAIL,  1),
+    SCARGO (100, Sprite.SCARGO, 5);
+
+    final double velocity;        // pixels per second
+    final Sprite sprite;          // The picture, and its anchor
+    final int livesCost;          // Lives lost when this enemy reaches the end
+
+    EnemyType (double velocity, Sprite sprite, int livesCost)
+    {
+        this.velocity = velocity;
+        this.sprite = sprite;
+        this.livesCost = livesCost;
+    }
+
+    /**
+     * Returns the picture for this kind of enemy.  The picture is
+     * only loaded the first time it is drawn, so the simulation
+     * never touches the image loader.
+     *
+     * @return the picture
+     */
+    Image getPicture ()
+    {
+        return sprite.getPicture();
+    }
+}
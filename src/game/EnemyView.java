@@ -0,0 +1,59 @@
+/**
+ * 
+ */
+package game;
+
+import java.awt.*;
+
+/**
+ * An Enemy object that looks at one enemy number in an EnemyStore.
+ * The store keeps one view per number and hands them out from
+ * EnemyStore.get().
+ */
+public class EnemyView implements Enemy
+{
+    private EnemyStore store;
+    private int index;
+
+    EnemyView (EnemyStore store, int index)
+    {
+        this.store = store;
+        this.index = index;
+    }
+
+    public void update (double deltaTime)
+    {
+        store.advance(index, store.getType(index).velocity * deltaTime);
+    }
+
+    public PathPosition getPos ()
+    {
+        return store.getPos(index);
+    }
+
+    public double getX ()
+    {
+        return store.getX(index);
+    }
+
+    public double getY ()
+    {
+        return store.getY(index);
+    }
+
+    public void draw (Graphics g, double alpha)
+    {
+        // Draw the shape for this enemy.
+
+        EnemyType t = store.getType(index);
+        int x = (int) store.getInterpolatedX(index, alpha);
+        int y = (int) store.getInterpolatedY(index, alpha);
+
+        g.drawImage(t.getPicture(), x - t.sprite.anchorX, y - t.sprite.anchorY, null);
+
+        // Debugging:  Draw a dot at the snail's location.
+
+        g.setColor(Color.CYAN);
+        g.fillOval(x - 2, y - 2, 5, 5);
+    }
+}
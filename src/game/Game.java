@@ -3,9 +3,12 @@ package game;
 import java.util.*;
 import java.util.List;
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Scanner;
+import java.util.concurrent.locks.LockSupport;
 import javax.swing.JFrame;
 import javax.swing.JPanel;
 
@@ -23,9 +26,18 @@ import javax.swing.JPanel;
  * they mean.  By using an enum, I can store values that look like what
  * they represent.  SETUP = The game is setting up, etc.
  * 
+ * LOADING means the images are being loaded in the background.  The
+ * loading screen is drawn instead of the game.
+ * 
+ * IDLE means the game loop is parked (paused or game over).  Nothing
+ * is moving, so the panel may redraw whenever Swing asks it to.
+ * 
+ * (There are no drawing states.  The renderer draws from snapshots,
+ * so it never has to stop the game loop.)
+ * 
  * @author Brandon Koch
  */
-enum GameState { SETUP, UPDATE, DRAW, WAIT, END }
+enum GameState { SETUP, LOADING, UPDATE, IDLE, END }
 
 /**
  * This class represents the playable game.  If you create an
@@ -37,7 +49,7 @@ enum GameState { SETUP, UPDATE, DRAW, WAIT, END }
  * 
  * @author pajensen
  */
-public class Game implements Runnable
+public class Game implements Runnable, CommandSource
 {
     /* Static methods */
     
@@ -58,27 +70,47 @@ public class Game implements Runnable
         //   needed.
     }
     
-    /* Object fields and methods */
+    /* Colors used by draw().  (Built once, not every frame.) */
+    
+    private static final Color BLOCKED_COLOR = new Color(1f, 0f, 0f, 0.25f);   // Not buildable
+    private static final Color CAN_BUILD_COLOR = new Color(0f, 0.8f, 0f);
+    private static final Color CANNOT_BUILD_COLOR = new Color(0.9f, 0f, 0f);
+    
+    /* The resources the game is played on. */
     
-    private GameState    state;   // The current game state
-    private GamePanel    gamePanel;
-    private Image        backdrop;
-    private Image 		 gameover;
-    private PathPoints   gardenPath;
+    private static final String PATH = "path_2.txt";
+    private static final String WAVES = "waves_2.txt";
     
-    java.util.List<Enemy>  enemies;
-    java.util.List<Tower>  towers;
-    java.util.List<Effect> effects;
+    /* Object fields and methods */
     
-    int lives, money;
-    protected int frameCounter;
-    private long lastTime;
+    private volatile GameState state;   // The current game state
+    private GamePanel      gamePanel;    // Passive rendering (Swing paints it), or
+    private GameCanvas     gameCanvas;   //   active rendering (our render thread draws it)
+    private Component      view;         // Whichever of the two is on the screen
+    private GameInput      input;        // The mouse and keyboard
+    private Image          backdrop;
+    private Image          gameover;
+    private Image          placementOverlay;   // Shades the spots where towers cannot go
+    private Image          menuImage;          // Shown while loading
+    private AssetPreloader preloader;
+    private GameSimulation sim;     // Everything that happens in the game
+    private InputRecorder  recorder;   // Records the game for a Replay, or null
+    private Autosave       autosave;   // Saves the game every few seconds, or null
+    private GameClock      clock;
+    private Thread         gameThread;
     
-    private int generatorStep;
-    private double generatorWait;
+    private int    simHz, renderHz;      // Simulation steps and frames per second
+    private long   stepNanos;            // The length of a simulation step
+    private volatile boolean paused;
+    private SnapshotBuffer snapshots;    // What the renderer draws, filled after each tick
     
-    private boolean placingTower;
-    private boolean isGameOver;
+    private Salt   menuSalt, previewSalt;   // Towers drawn in the menu and under the cursor
+    private StaticLayer staticLayer;        // The backdrop, path, and menu, drawn once
+    private ScoreLayer  scoreLayer;         // The score, drawn when it changes
+    private SpriteAtlas atlas;              // Every sprite in one image, or null
+    private StatsOverlay statsOverlay;      // The timings, shown with F3
+    private PhaseTimers drawTimers;         // How long each frame takes to draw
+    private volatile boolean showStats;
     
     // You will declare other variables here.  These variables will last for
     //   the lifetime of the game, so don't store temporary values or loop counters
@@ -94,82 +126,188 @@ public class Game implements Runnable
      * thread of execution controlled by Java.  Fortunately, we
      * don't care, but we are aware that some other threads
      * do exist.)
+     * 
+     * The simulation and frame rates can be changed with the
+     * game.simHz and game.renderHz system properties.  Frames are
+     * drawn by a render thread of our own (active rendering) unless
+     * game.render is set to "passive", in which case Swing paints
+     * a GamePanel when asked to.  Setting game.atlas to true draws
+     * the sprites from a SpriteAtlas.  Setting game.record to a
+     * filename records the game, to be played again by Replay.
+     * Setting game.autosave to a filename saves the game to it every
+     * game.autosaveSeconds (5) seconds, and picks the saved game up
+     * again at the next launch.  F3 shows how long each part of a tick
+     * and of a frame takes.
      */
     public Game ()
     {
         // The game starts in the SETUP state.
         
         state = GameState.SETUP;
+        clock = GameClock.SYSTEM;
+        simHz = Math.max(1, Integer.getInteger("game.simHz", 60));
+        renderHz = Math.max(1, Integer.getInteger("game.renderHz", 60));
+        stepNanos = 1000000000L / simHz;
+        snapshots = new SnapshotBuffer();
+        statsOverlay = new StatsOverlay();
+        drawTimers = new PhaseTimers(5 * renderHz, "draw");
         
         // Create a thread of execution and run it.
         
-        Thread t = new Thread(this);
-        t.start();  // Our run method is now executing!!!
+        gameThread = new Thread(this);
+        gameThread.start();  // Our run method is now executing!!!
     }
     
     /**
      * The entry point for the second thread of execution.  Our
      * game loop is entirely within this method.
+     * 
+     * The simulation always advances in fixed steps of 1/simHz
+     * seconds.  Real time is added to an accumulator, and we take
+     * as many steps as fit into it.  Then a snapshot of the game is
+     * published and a frame is requested, renderHz times a second.
+     * The renderer draws the snapshot (blended between the last two
+     * steps) while this thread goes on with the game, so updating and
+     * drawing overlap.  Between frames, and whenever the game is
+     * paused or over, the thread is parked.
      */
     public void run ()
     {
-        // Loop forever, or until the user closes the game window,
-        //   whichever comes first.  ;)
+        doSetupStuff();
+        
+        long frameNanos = 1000000000L / renderHz;
+        long maxFrame   = 250000000L;  // Never try to catch up more than 1/4 second
+        double stepSeconds = 1.0 / simHz;
+        
+        long previous = clock.nanoTime();
+        long nextFrame = previous;
+        long accumulator = 0;
+        
+        // Loop until the user closes the game window.
         
-        while (true)
+        while (state != GameState.END)
         {
-            // Test our game state, and do the appropriate action.
+            // When paused or over, draw one last frame and then park the
+            //   thread completely.  togglePause() wakes us up again.
             
-            if (state == GameState.SETUP)
+            if (paused || sim.isGameOver())
             {
-                doSetupStuff();
-            }
-            
-            else if (state == GameState.UPDATE)
-            {
-                doUpdateTasks();
-            }
-            
-            else if (state == GameState.DRAW)
-            {
-                // We don't actually force the drawing to happen.
-                //   Instead, we 'request' it of the panel.
+                enterState(GameState.IDLE);
+                doPublishFrame(clock.nanoTime() - stepNanos);
+                if (recorder != null)
+                    recorder.flush();
+                if (autosave != null && sim.isGameOver())
+                    autosave.discard();
                 
-                gamePanel.repaint();  // Uncomment this line when you have your gamePanel variable set up.
+                while ((paused || sim.isGameOver()) && state != GameState.END)
+                    LockSupport.park(this);
                 
-                // We must wait for the drawing.  It will happen at some time in the near future.
-                //   Since we are in an infinite loop, we could just loop until we leave the draw
-                //   state.  This would waste battery life on a low power device, so instead
-                //   I choose to sleep the current thread for a very short while (so that it
-                //   will be briefly inactive).
+                // Don't count the time spent parked.
                 
-                try { Thread.sleep(5); } catch (Exception e) {}
-                
-                // Do not advance the state here.  The 'draw' method will advance the state after it draws.
+                enterState(GameState.UPDATE);
+                previous = clock.nanoTime();
+                nextFrame = previous;
+                accumulator = 0;
+                continue;
             }
             
-            else if (state == GameState.WAIT)
-            {
-                // Wait 1/10th a second.  This code is not ideal, we'll explore a better way soon.
-                
-                try { Thread.sleep(20); } catch (Exception e) {}
-                
-                // Drawing is complete, waiting is complete.  It is time to move
-                //   the objects in the game again.  Re-enter the UPDATE state.
-                
-                state = GameState.UPDATE;
-            }
+            // See how long it was since the last frame.
             
-            else if (state == GameState.END)
+            long currentTime = clock.nanoTime();
+            long frameTime = Math.min(currentTime - previous, maxFrame);
+            previous = currentTime;
+            accumulator += frameTime;
+            
+            // Move the objects in the game in fixed steps.
+            
+            while (accumulator >= stepNanos)
             {
-                // Do cleanup if any.  (We don't need to do anything here yet.)
-                System.exit(0);
+                doUpdateTasks(stepSeconds);
+                accumulator -= stepNanos;
             }
+            
+            if (autosave != null)
+                autosave.update(sim);
+            
+            // Hand the game to the renderer.  (The last step stands for
+            //   the time before what is left in the accumulator.)
+            
+            doPublishFrame(currentTime - accumulator);
+            
+            // Sleep until the next frame is due.  If we have fallen behind,
+            //   start counting frames again from now.
+            
+            nextFrame += frameNanos;
+            long now = clock.nanoTime();
+            if (nextFrame < now)
+                nextFrame = now;
+            
+            while ((now = clock.nanoTime()) < nextFrame && !paused)
+                LockSupport.parkNanos(this, nextFrame - now);
         }
+        
+        // The window was closed.  Let the render thread finish its frame
+        //   and stop before the program exits.
+        
+        if (gameCanvas != null)
+            gameCanvas.stop();
+        
+        System.exit(0);
+    }
+    
+    /**
+     * Pauses or resumes the game.  While paused, the game thread is
+     * parked and uses no CPU.
+     */
+    public void togglePause ()
+    {
+        paused = !paused;
+        LockSupport.unpark(gameThread);
+    }
+    
+    /**
+     * Shows or hides the timing overlay (see StatsOverlay).
+     */
+    public void toggleStats ()
+    {
+        showStats = !showStats;
+        if (view != null)
+            view.repaint();
+    }
+    
+    /**
+     * Ends the game (when the window is closed).  The game thread stops
+     * the render thread, then the program.
+     */
+    synchronized void end ()
+    {
+        state = GameState.END;
+        LockSupport.unpark(gameThread);
+    }
+    
+    /**
+     * Returns true once the game has ended.
+     * 
+     * @return true if the game has ended
+     */
+    boolean isEnded ()
+    {
+        return state == GameState.END;
+    }
+    
+    /**
+     * Moves the game into a new state, unless it has already ended.
+     * 
+     * @param next the new state
+     */
+    private synchronized void enterState (GameState next)
+    {
+        if (state != GameState.END)
+            state = next;
     }
     
     /**
-     * This setup function is called when the game is in the UPDATE state.
+     * This setup function is called when the game thread starts.
      * It just sets up a game, then enters any valid game state.
      */
     private void doSetupStuff ()
@@ -179,333 +317,418 @@ public class Game implements Runnable
         
         JFrame f = new JFrame();
         f.setTitle("Peter's Example");
-        f.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        gamePanel = new GamePanel(this);
-        f.setContentPane(gamePanel);
-        f.pack();
-        f.setVisible(true);
+        f.setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE);
+        f.addWindowListener(new WindowAdapter()
+        {
+            @Override
+            public void windowClosing (WindowEvent e)
+            {
+                end();
+            }
+        });
+        input = new GameInput(this);
         
-        // Load the background image.
+        // Use active rendering (a canvas drawn by our own render thread)
+        //   if we can.  Otherwise, fall back on a panel that Swing paints.
         
-        ImageLoader loader = ImageLoader.getLoader();
-        backdrop = loader.getImage("path_2.jpg");
+        if (!"passive".equals(System.getProperty("game.render")))
+        {
+            gameCanvas = new GameCanvas(this, input);
+            f.add(gameCanvas);
+            f.pack();
+            f.setVisible(true);
+            
+            try
+            {
+                gameCanvas.start();
+                gameCanvas.requestFocus();
+                view = gameCanvas;
+            }
+            catch (RuntimeException e)
+            {
+                System.out.println ("Active rendering is not available (" + e.getMessage() + "), using passive rendering.");
+                f.remove(gameCanvas);
+                gameCanvas = null;
+            }
+        }
         
-        // Load the game over image
-        gameover = loader.getImage("game_over.png");
+        if (view == null)
+        {
+            gamePanel = new GamePanel(this, input);
+            f.setContentPane(gamePanel);
+            f.pack();
+            f.setVisible(true);
+            view = gamePanel;
+        }
+        
+        // Show the menu picture while the rest of the images are loaded
+        //   in the background (see resources/manifest.txt).  The view is
+        //   redrawn each time one of them finishes.
         
-        // Build the garden path object.
+        ImageLoader loader = ImageLoader.getLoader();
+        menuImage = loader.getImage("menu.jpg");
         
+        List<String> manifest = null;
         try
         {
-            ClassLoader myLoader = this.getClass().getClassLoader();            
-            InputStream pointStream = myLoader.getResourceAsStream("resources/path_2.txt");
-            Scanner s = new Scanner (pointStream);
-            gardenPath = new PathPoints(s);
+            manifest = AssetPreloader.readManifest(AssetPreloader.MANIFEST);
         }
-        catch (Exception e)
+        catch (IOException e)
         {
             System.out.println ("Could not load: " + e.getMessage());
             System.exit(0);
         }
-                
-        // Create a list for the snails, towers, and effects
-        
-        enemies = new LinkedList<Enemy>();
-        towers = new LinkedList<Tower>();
-        effects = new LinkedList<Effect>();
-        
-        // test for a single effect
-        Coordinate pos = new Coordinate(100, 100);
-        
-        // Reset the score.
         
-        lives = 7;
-        money = 200;
-        
-        // Reset the frame counter and time 
-        
-        frameCounter = 0;
-        lastTime = System.currentTimeMillis();
-        
-        // Reset the generator
-        
-        generatorStep = 0;
-        generatorWait = 0;
-        
-        // Set Game Over
-        isGameOver = false;
-        
-        // Reset mouse stuff
+        int loaderThreads = Integer.getInteger("game.loaderThreads", Runtime.getRuntime().availableProcessors());
+        preloader = new AssetPreloader(manifest, loaderThreads, new Runnable()
+        {
+            public void run ()
+            {
+                view.repaint();
+            }
+        });
         
-        placingTower = false;
+        enterState(GameState.LOADING);
+        view.repaint();
         
-        // Change the game state to start the game.
+        // Build the garden path object, and read the waves of enemies
+        //   that follow it.  (While the images load.)
         
-        state = GameState.DRAW;  // You could also enter the 'UPDATE' state.
-    }
-    
-    /**
-     * This function is called repeatedly (once per game 'frame').
-     * The update function should change the positions of objects in the game.
-     * (It could also add new enemies, detect collisions, etc.)  This
-     * function is responsible for the 'physics' of the game.
-     */
-    private void doUpdateTasks()
-    {
-        // Check for Game Over
-    	if (lives < 1)
-    	{
-    		isGameOver = true;
-    		lives = 0;
-    	}
-    	
-    	if(isGameOver)
-    	{
-    		state = GameState.DRAW;
-    		return;
-    	}
-    	
-    	// See how long it was since the last frame.
+        PathPoints gardenPath = null;
+        SpawnSchedule waves = null;
+        try
+        {
+            gardenPath = PathPoints.load(PATH);
+            waves = WaveFile.open(WAVES);
+        }
+        catch (Exception e)
+        {
+            System.out.println ("Could not load: " + e.getMessage());
+            System.exit(0);
+        }
         
-        long currentTime = System.currentTimeMillis();  // Integer number of milliseconds since 1/1/1970.
-        double elapsedTime = (currentTime - lastTime) / 1000.0;  // Compute elapsed seconds
-        lastTime = currentTime;  // Our current time is the next frame's last time
+        // Build the towers that are drawn in the menu and under the cursor.
         
-        // Count this frame (I don't use this any more)
+        menuSalt = new Salt(700, 300);
+        previewSalt = new Salt(0, 0);
         
-        frameCounter++;
+        // Build the simulation.  It runs on the system clock, and takes
+        //   its tower placement commands from the mouse (see issueCommands).
         
-        // Do update tasks
-        // Advance the snail along the garden path.
+        sim = new GameSimulation(gardenPath, GameClock.SYSTEM);
+        sim.setCommandSource(this);
+        sim.setWaves(waves);
         
-        for (Enemy s : enemies)
-            s.update(elapsedTime);
+        // If asked to (-Dgame.autosave=file), pick up the saved game, if
+        //   there is one, and keep saving the game as it goes.
         
-        // Remove snails that reach the end.
+        boolean resumed = false;
+        String saveName = System.getProperty("game.autosave");
+        if (saveName != null)
+        {
+            java.io.File saveFile = new java.io.File(saveName);
+            if (saveFile.isFile())
+            {
+                try
+                {
+                    GameSimulation saved = new GameSimulation(gardenPath, GameClock.SYSTEM);
+                    saved.setCommandSource(this);
+                    saved.setWaves(WaveFile.open(WAVES));
+                    SaveGame.load(saveFile, saved);
+                    
+                    sim = saved;
+                    resumed = true;
+                }
+                catch (IOException | IllegalArgumentException e)
+                {
+                    // (The half-restored game is thrown away, and a new one
+                    //   is played.)
+
+                    System.out.println ("Could not resume " + saveName + ": " + e.getMessage());
+                }
+            }
+            
+            double seconds = Double.parseDouble(System.getProperty("game.autosaveSeconds", "5"));
+            autosave = new Autosave(saveFile, seconds);
+        }
         
-        List<Enemy> toBeRemoved = new ArrayList<Enemy>();
+        // If asked to (-Dgame.record=file), record the steps and the
+        //   player's commands.  (A recording starts from a new game, so a
+        //   resumed game cannot be recorded.)
         
-        for (Enemy s : enemies)
-            if (s.getPos().isAtTheEnd())
+        final String recording = System.getProperty("game.record");
+        if (recording != null && resumed)
+            System.out.println ("Not recording:  the game was resumed from " + saveName);
+        else if (recording != null)
+        {
+            try
             {
-                toBeRemoved.add(s);
-                if (s instanceof Snail)
-                    lives--;
-                else if (s instanceof SCargo)
-                    lives -= 5;  // lives = lives - 5;
+                recorder = new InputRecorder(new java.io.File(recording), PATH, WAVES, sim.getTargetPolicy(), this);
+                sim.setCommandSource(recorder);
+                
+                // The game usually ends with the window closing, which
+                //   exits straight away, so finish the file on the way out.
+                
+                Runtime.getRuntime().addShutdownHook(new Thread()
+                {
+                    public void run ()
+                    {
+                        try
+                        {
+                            recorder.close();
+                        }
+                        catch (IOException e)
+                        {
+                            System.out.println ("Could not record to " + recording + ": " + e.getMessage());
+                        }
+                    }
+                });
+            }
+            catch (IOException e)
+            {
+                System.out.println ("Could not record to " + recording + ": " + e.getMessage());
             }
+        }
+        
+        // Wait for the images, then get the background and game over
+        //   images.  (They are already loaded.)
         
-        enemies.removeAll(toBeRemoved);
+        try
+        {
+            preloader.await();
+        }
+        catch (InterruptedException e)
+        {
+            // Any image that is not loaded yet is loaded when asked for.
+        }
         
-        // Generate new enemies
+        backdrop = loader.getImage("path_2.jpg");
+        gameover = loader.getImage("game_over.png");
         
-        generateEnemies(elapsedTime);
+        // Build the layers that hold the parts of the screen that rarely change.
         
-        // Place towers
-               
-        placeTowers ();
+        staticLayer = new StaticLayer(backdrop, gardenPath, menuSalt);
+        scoreLayer = new ScoreLayer();
         
-        // Tower interaction
-        for (Tower t: towers)
-        {
-        	t.interact(this);
-        }
+        // If asked to (-Dgame.atlas=true), pack the sprites into one image
+        //   and draw them all from there.
         
-     // Need help here
-        // TO DO: Loop through the effects and 'interact' with each one
+        if (Boolean.getBoolean("game.atlas"))
+            atlas = new SpriteAtlas(view.getGraphicsConfiguration());
         
-        for (Effect e: new ArrayList<Effect>(effects))
-        {
-        	e.interact(this, elapsedTime);
-        	if(e.isDone())
-        	{
-        		effects.remove(e);
-        	}
-        }
+        // Shade the places where towers cannot be built.  (Drawn while
+        //   the user is placing a tower.)
         
-        // After we have updated the objects in the game, we need to
-        //   redraw them.  Enter the 'DRAW' state.
+        placementOverlay = sim.pathDistance.buildOverlay(GameSimulation.PATH_CLEARANCE, BLOCKED_COLOR);
         
-       state = GameState.DRAW;
-       
-       // Careful!  At ANY time after we set this state, the draw method
-       //   may execute.  Don't do any further updating.
+        // Change the game state to start the game.
+        
+        enterState(GameState.UPDATE);
     }
     
+    /**
+     * This function is called repeatedly (once per simulation step).
+     * The simulation does the real work (moving objects, adding new
+     * enemies, detecting collisions, etc.), this function just
+     * advances it by one step.
+     * 
+     * @param stepSeconds the length of one simulation step
+     */
+    private void doUpdateTasks (double stepSeconds)
+    {
+        if (recorder != null)
+            recorder.step(sim, stepSeconds);
+        else
+            sim.step(stepSeconds);
+    }
     
+    /**
+     * Copies the game into a snapshot for the renderer, publishes it,
+     * and asks for a frame.  We do not wait for the frame to be drawn:
+     * the renderer only ever reads published snapshots, so the game
+     * can go on moving while it draws.
+     * 
+     * @param stepTime the clock time that the last step stands for
+     */
+    private void doPublishFrame (long stepTime)
+    {
+        snapshots.getBack().capture(sim, paused, stepTime, stepNanos);
+        snapshots.publish();
+        
+        // We don't actually force the drawing to happen.
+        //   Instead, we 'request' it of the view.
+        
+        view.repaint();
+    }
     
     /**
-     * Draws all the game objects, then enters the wait state.
+     * Draws the newest snapshot of the game.  Moving objects are drawn
+     * between their last two positions, depending on how long ago the
+     * last step was.  This only reads the snapshot (and the things that
+     * never change after setup), so it does not have to stop the game.
      * 
      * @param g a valid graphics object.
      */
     public void draw(Graphics g)
     {
-        // If we're not in the DRAW state, do not draw!
+        // If the game is not set up yet, there is nothing to draw!
+        //   (Or only the loading screen.)
         
-        if (state != GameState.DRAW)
+        if (state == GameState.SETUP)
+            return;
+        
+        if (state == GameState.LOADING)
+        {
+            drawLoadingScreen(g);
             return;
+        }
+        
+        long drawStart = drawTimers.start();
+        RenderSnapshot s = snapshots.getLatest();
+        double alpha = s.getAlpha(clock.nanoTime());
         
-        // Draw the backdrop image and the garden path line.
+        // Draw the backdrop image, the garden path line, and the menu.
+        //   (These are drawn once into the static layer, and copied
+        //   from there.)
         
-        g.drawImage(backdrop,  0, 0, null);        
-        gardenPath.drawPath(g);
+        GraphicsConfiguration gc = view.getGraphicsConfiguration();
+        staticLayer.draw(g, gc);
         
-        // Draw the snail.  (We should be able to use the draw
-        // method in the Snail class.  Note:  We should not move the
-        // snail.  The objects in the game should only be moved in the
-        // update method.)       
+        // Draw the snails.  (Each one is blended between its previous
+        //   and current location.)
         
-        for (Enemy s : enemies)
-            s.draw(g);
+        for (int i = 0; i < s.enemyCount; i++)
+        {
+            int x = (int) (s.enemyPreviousX[i] + (s.enemyX[i] - s.enemyPreviousX[i]) * alpha);
+            int y = (int) (s.enemyPreviousY[i] + (s.enemyY[i] - s.enemyPreviousY[i]) * alpha);
+            drawSprite(g, Sprite.ALL[s.enemySprite[i]], x, y, Color.CYAN);
+        }
        
         // Draw the towers
         
-        for (Tower t : towers)
-            t.draw(g);
-        
-        
+        for (int i = 0; i < s.towerCount; i++)
+            drawSprite(g, Sprite.ALL[s.towerSprite[i]], s.towerX[i], s.towerY[i], Color.GREEN);
         
-        // If the user is placing a tower, create one temporarily to
-        //   draw under the cursor.
+        // If the user is placing a tower, shade the spots where it
+        //   cannot go, then move the preview tower under the cursor and
+        //   draw it with a ring that says if it can be placed there.
                 
-        if (placingTower)
+        if (s.placingTower)
         {
-            Coordinate c = new Coordinate (gamePanel.mouseX, gamePanel.mouseY);
-            Tower temp = new Salt (c); 
-            temp.draw(g);
+            int mx = input.mouseX;
+            int my = input.mouseY;
+            
+            g.drawImage(placementOverlay, 0, 0, null);
+            previewSalt.setPosition(mx, my);
+            previewSalt.draw(g);
+            
+            g.setColor(sim.canBuildAt(mx, my) ? CAN_BUILD_COLOR : CANNOT_BUILD_COLOR);
+            g.drawOval(mx - 20, my - 20, 40, 40);
         }
        
        // Draw the effects
         
-       for(Effect e: effects)
-    	   e.draw(g);
-        
-    // If Game Over
-       if(isGameOver)
+       for (int i = 0; i < s.effectCount; i++)
        {
-       	g.drawImage(gameover, 0, 0, null);
+           int x = (int) (s.effectPreviousX[i] + (s.effectX[i] - s.effectPreviousX[i]) * alpha);
+           int y = (int) (s.effectPreviousY[i] + (s.effectY[i] - s.effectPreviousY[i]) * alpha);
+           drawSprite(g, Sprite.ALL[s.effectSprite[i]], x, y, null);
        }
-       // Clear the menu area on the right.
-              
-       g.setColor(Color.WHITE);
-       g.fillRect(600, 0, 200, 600);
         
-       // Draw a salt shaker in the menu area.
-       
-       g.setColor(new Color(1f, 1f, 0.8f));
-       g.fillRect(660, 260, 80, 80);
-       
-       Salt salt = new Salt(new Coordinate(700, 300));
-       salt.draw(g);
+       // Cover up anything that wandered into the menu area on the right.
+              
+       staticLayer.drawMenu(g, gc);
        
-       // Draw the score.
+       // Draw the score.  (The text is only drawn again when the score changes.)
        
-       g.setColor (Color.BLACK);
-       g.setFont(new Font("Lucidia Sans", Font.BOLD, 24));
-       g.drawString("Lives: " + lives, 620, 100);
-       g.drawString("Money: " + money, 620, 130);
+       scoreLayer.draw(g, gc, s.lives, s.money, s.paused);
         
        // If Game Over
-       if(isGameOver)
+       if(s.gameOver)
        {
        	g.drawImage(gameover, 0, 0, null);
        }
        
-        // Drawing is now complete.  Enter the WAIT state to create a small
-        //   delay between frames.
-        
-        state = GameState.WAIT;
+       // Time the frame (not counting the overlay), then show the timings
+       //   if asked to.
+       
+       drawTimers.lap(0, drawStart);
+       drawTimers.endSample();
+       
+       if (showStats)
+           statsOverlay.draw(g, sim.getTickTimers(), drawTimers, s);
     }
     
     /**
-     * This is just a helper function for generating enemies each frame.
-     * I have updated it to use 'deltaTime' so that the enemy generation
-     * rate is not tied to the frame update rate.  (It is tied to 'seconds'
-     * instead.)
+     * Draws the menu picture, and a bar that shows how many of the
+     * images have been loaded.
      * 
-     * @param deltaTime
+     * @param g a valid graphics object.
      */
-    private void generateEnemies (double deltaTime)
+    private void drawLoadingScreen (Graphics g)
     {
-        // This string controls how enemies are created.  
-        //   's' means to create a snail.
-        //   'v' means to create a van.
-        //   1-9 means delay this many tenths of a second.
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, 800, 600);
+        g.drawImage(menuImage, 100, 150, null);
         
-        String enemyList = "s9v9s99s99s1s1s1s7" + 
-                           "s8s7ssss9s9s9s9s6s7s8";  // This should be much, much longer (perhaps 300 seconds worth of enemies).
+        int total = Math.max(1, preloader.getTotal());
         
-        // Wait if we need to.  (If the generator count is positive, we skip
-        //   generation.)
-        
-        generatorWait -= (deltaTime * 10);  // Reduce the time we're supposed to wait.
-        
-        if (generatorWait > 0)  // If positive, bail.
-            return;
-        
-        // Get a new start position
-        
-        PathPosition p = gardenPath.getStart();
-        
-        // get the next character from the enemy list
-        
-        char ch = enemyList.charAt(generatorStep);
-        generatorStep++;
-        
-        // If we get to the end of the list, go back to the start.
-        
-        if (generatorStep >= enemyList.length())
-            generatorStep = 0;
-        
-        // Generate the enemy (or set up to delay)
-        
-        if (ch == 's')
-            enemies.add(new Snail(p));
-        else if (ch == 'v')
-            enemies.add(new SCargo(p));
+        g.setColor(Color.DARK_GRAY);
+        g.drawRect(200, 400, 400, 16);
+        g.fillRect(200, 400, 400 * preloader.getLoaded() / total, 16);
+    }
+    
+    /**
+     * Draws a sprite centered on a location, with a debugging dot
+     * at the location itself.
+     * 
+     * @param g      a graphics object
+     * @param sprite the sprite to draw
+     * @param x      the x location
+     * @param y      the y location
+     * @param dot    the color of the dot, or null for no dot
+     */
+    private void drawSprite (Graphics g, Sprite sprite, int x, int y, Color dot)
+    {
+        if (atlas != null)
+            atlas.draw(g, sprite, x, y);
         else
-            generatorWait = ch - '0';  // Subtract ascii 0 from ascii #        
+            g.drawImage(sprite.getPicture(), x - sprite.anchorX, y - sprite.anchorY, null);
         
-        // Done.
+        if (dot != null)
+        {
+            g.setColor(dot);
+            g.fillOval(x - 2, y - 2, 5, 5);
+        }
     }
     
     /**
      * This helper function responds to user mouse actions.  It
      * checks for the user clicking on menu buttons or the screen,
-     * and reacts accordingly.
+     * and issues the matching command to the simulation.  The
+     * simulation calls this once per frame.
+     * 
+     * @param commands the commands accepted by the simulation
      */
-    private void placeTowers ()
+    @Override
+    public void issueCommands (TowerCommands commands)
     {
-        // I've cleaned this up a bit since lecture.  I removed the 'newTower'
-        //   variable, it was not not needed and was confusing.
-        
-        // Is the mouse pressed on the menu button, and does the user have enough
-        //   money for a tower?  If so, set a flag that indicates we should build a tower.
+        // Is the mouse pressed on the menu button?  If so, try to
+        //   select a tower.  (The simulation checks the money.)
          
-        if (gamePanel.isMousePressed && 
-            gamePanel.mouseX > 660 && gamePanel.mouseX < 740 &&
-            gamePanel.mouseY > 260 && gamePanel.mouseY < 340 &&
-            money > 120)
+        if (input.isMousePressed && 
+            input.mouseX > 660 && input.mouseX < 740 &&
+            input.mouseY > 260 && input.mouseY < 340)
         {
-            placingTower = true;
+            commands.selectTower();
         }
         
-        // Otherwise, is the user currently placing a tower, and is the
-        //   user clicking on the map sufficiently far away from the path?
+        // Otherwise, is the user clicking on the map?  If so, try to
+        //   place the tower there.  (The simulation checks the path.)
         
-        else if (placingTower && gamePanel.isMousePressed &&
-            gamePanel.mouseX > 0 && gamePanel.mouseX < 600 &&
-            gamePanel.mouseY > 0 && gamePanel.mouseY < 600 &&            
-            gardenPath.distanceToPath(gamePanel.mouseX, gamePanel.mouseY) > 40)
+        else if (input.isMousePressed)
         {
-            Coordinate c = new Coordinate (gamePanel.mouseX, gamePanel.mouseY);
-            Tower t = new Salt (c); 
-            towers.add(t);
-            
-            money = money - 120;
-            placingTower = false;
+            commands.placeTower(input.mouseX, input.mouseY);
         }
     }
 }
-
@@ -0,0 +1,167 @@
+/**
+ * 
+ */
+package game;
+
+import java.awt.*;
+import java.awt.image.BufferStrategy;
+
+/**
+ * The drawable area for active rendering.  Instead of asking Swing to
+ * repaint and waiting for the event thread to get around to it, a
+ * render thread of our own draws each frame into a BufferStrategy and
+ * shows it as soon as the game thread asks for it.
+ * 
+ * The render thread sleeps until a frame is requested:  by the game
+ * thread, each time it publishes a new snapshot, or by AWT, when the
+ * window needs drawing (such as after it was uncovered).  Game.draw
+ * only reads the newest snapshot, so the game thread never waits for
+ * the render thread (or for show(), which may block until the
+ * display's next refresh).  Requests that arrive while a frame is
+ * being drawn are folded into one more frame.
+ */
+public class GameCanvas extends Canvas implements Runnable
+{
+    /* Static fields and methods */
+    
+    private static final long serialVersionUID = 1L;
+    
+    /* Object fields and methods */
+    
+    private Game game;
+    private BufferStrategy strategy;
+    private Thread renderThread;
+    private boolean redrawRequested;  // A frame is wanted (guarded by this canvas)
+    
+    /**
+     * Builds the canvas.  Call start() once it is on the screen.
+     * 
+     * @param game   the game to draw
+     * @param input  the mouse and keyboard state to keep up to date
+     */
+    public GameCanvas (Game game, GameInput input)
+    {
+        this.game = game;
+        
+        input.listenTo(this);
+        setPreferredSize(new Dimension(800, 600));
+    }
+    
+    /**
+     * Builds the buffers and starts the render thread.  The canvas
+     * must be on the screen (in a visible window).
+     * 
+     * @throws IllegalStateException if the canvas is not on the screen
+     *         or no buffers can be made
+     */
+    public void start ()
+    {
+        createBufferStrategy(2);
+        strategy = getBufferStrategy();
+        
+        renderThread = new Thread(this, "Render");
+        renderThread.setDaemon(true);
+        renderThread.start();
+    }
+    
+    /**
+     * Stops the render thread, once the game has ended, and waits for
+     * it to finish the frame it is drawing.
+     */
+    public void stop ()
+    {
+        requestRedraw();   // Wakes the thread, which sees that the game has ended
+        
+        try
+        {
+            renderThread.join();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * The render thread:  draws and shows frames until the game ends.
+     */
+    public void run ()
+    {
+        while (true)
+        {
+            // Wait until a frame is wanted.
+            
+            synchronized (this)
+            {
+                while (!redrawRequested)
+                {
+                    try { wait(); } catch (InterruptedException e) { return; }
+                }
+                
+                redrawRequested = false;
+            }
+            
+            if (game.isEnded())
+                return;
+            
+            // Draw it into the back buffer.  (No lock is held; the game
+            //   goes on while we draw.)
+            
+            Graphics g = strategy.getDrawGraphics();
+            try
+            {
+                game.draw(g);
+            }
+            finally
+            {
+                g.dispose();
+            }
+            
+            // Show the frame.  (If the buffer was lost while we drew, skip
+            //   it; the next frame will be drawn from scratch.)
+            
+            if (!strategy.contentsLost())
+                strategy.show();
+            
+            Toolkit.getDefaultToolkit().sync();
+        }
+    }
+    
+    /**
+     * Called (by Swing's repaint machinery) when the window needs to be
+     * drawn.  The render thread does the drawing.
+     */
+    @Override
+    public void repaint ()
+    {
+        requestRedraw();
+    }
+    
+    /**
+     * Called by AWT when the window needs to be drawn, for example
+     * after it was uncovered.  The render thread does the drawing.
+     */
+    @Override
+    public void paint (Graphics g)
+    {
+        requestRedraw();
+    }
+    
+    /**
+     * Called by AWT instead of paint() for repaints.  Nothing is
+     * cleared here; the render thread draws the whole frame.
+     */
+    @Override
+    public void update (Graphics g)
+    {
+        requestRedraw();
+    }
+    
+    /* Helpers */
+    
+    private synchronized void requestRedraw ()
+    {
+        redrawRequested = true;
+        notifyAll();
+    }
+}
@@ -0,0 +1,32 @@
+/**
+ * 
+ */
+package game;
+
+/**
+ * A source of time for the simulation.  The game normally runs
+ * on the system clock, but tests and tools can supply their own
+ * clock so that the simulation can be stepped faster (or slower)
+ * than wall-clock time.
+ */
+public interface GameClock
+{
+    /**
+     * A clock backed by System.nanoTime().
+     */
+    public static final GameClock SYSTEM = new GameClock()
+    {
+        public long nanoTime ()
+        {
+            return System.nanoTime();
+        }
+    };
+
+    /**
+     * Returns the current time in nanoseconds.  Only differences
+     * between two readings are meaningful.
+     *
+     * @return the current time, in nanoseconds
+     */
+    public long nanoTime ();
+}
@@ -0,0 +1,90 @@
+/**
+ * 
+ */
+package game;
+
+/**
+ * Things that happen in the game, reported as they happen so they can
+ * be lined up with everything else the JVM was doing (garbage
+ * collection, say) when the game stutters.  The simulation reports
+ * every spawn, shot, kill, and leak, and the time each phase of each
+ * tick took.
+ *
+ * Normally nothing listens:  the simulation reports to NONE, whose
+ * methods are empty, and the JIT removes the calls altogether.
+ * Setting the game.jfr system property to true reports them as JDK
+ * Flight Recorder events instead (see FlightRecorderEvents, in the
+ * jfr source folder), which a recording picks up along with the JVM's
+ * own events:
+ *
+ *   java -Dgame.jfr=true -XX:StartFlightRecording=filename=game.jfr,settings=profile ...
+ *
+ * The flight recorder events need Java 11.  On older JVMs the game
+ * says so and reports to NONE.
+ *
+ * Every method is called from the thread running the tick, while
+ * nothing else is changing the game.
+ */
+public interface GameEvents
+{
+    /**
+     * Reports nothing.
+     */
+    public static final GameEvents NONE = new GameEvents()
+    {
+        public void spawn (int enemy, EnemyType type, double headStart) { }
+        public void shot (int tower, int x, int y, int targetX, int targetY) { }
+        public void kill (int enemy, int tower, int reward) { }
+        public void leak (int enemy, EnemyType type, int livesLeft) { }
+        public void tick (int tick, PhaseTimers timers, int enemies, int readyTowers, int effects) { }
+    };
+
+    /**
+     * An enemy has been added to the game.
+     *
+     * @param enemy      the enemy's handle (see EnemyStore.getHandle)
+     * @param type       the kind of enemy
+     * @param headStart  how far along the path it started, in pixels
+     */
+    public void spawn (int enemy, EnemyType type, double headStart);
+
+    /**
+     * A tower has thrown a salt crystal.
+     *
+     * @param tower    the number of the tower
+     * @param x        where the crystal starts
+     * @param y        where the crystal starts
+     * @param targetX  where it is thrown toward
+     * @param targetY  where it is thrown toward
+     */
+    public void shot (int tower, int x, int y, int targetX, int targetY);
+
+    /**
+     * An enemy has been killed.
+     *
+     * @param enemy   the enemy's handle
+     * @param tower   the number of the tower that killed it, or -1
+     * @param reward  the money paid for it
+     */
+    public void kill (int enemy, int tower, int reward);
+
+    /**
+     * An enemy has reached the end of the path.
+     *
+     * @param enemy      the enemy's handle
+     * @param type       the kind of enemy
+     * @param livesLeft  the lives left after taking its cost
+     */
+    public void leak (int enemy, EnemyType type, int livesLeft);
+
+    /**
+     * A tick has finished.
+     *
+     * @param tick         the number of the tick
+     * @param timers       the tick's timers (see PhaseTimers.getLatest)
+     * @param enemies      the number of enemies
+     * @param readyTowers  the number of towers that were ready to fire
+     * @param effects      the number of effects
+     */
+    public void tick (int tick, PhaseTimers timers, int enemies, int readyTowers, int effects);
+}
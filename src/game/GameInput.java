@@ -0,0 +1,157 @@
+/**
+ * 
+ */
+package game;
+
+import java.awt.event.*;
+
+/**
+ * The mouse and keyboard, as the game sees them:  where the mouse is,
+ * and whether its button is down.  It listens to whichever component
+ * the game is drawn on (the GamePanel or the GameCanvas), and turns
+ * 'P' and the space bar into pause requests.
+ * 
+ * The fields are written by the event thread and read by the game
+ * thread, so they are volatile.
+ */
+public class GameInput implements MouseListener, MouseMotionListener, KeyListener
+{
+    private Game game;
+    public volatile int mouseX, mouseY;
+    public volatile boolean isMousePressed;
+    
+    /**
+     * Builds the input for a game.  Call listenTo() to start hearing
+     * events.
+     * 
+     * @param game  the game to pause and resume
+     */
+    public GameInput (Game game)
+    {
+        this.game = game;
+    }
+    
+    /**
+     * Starts listening to the mouse and keyboard events of a component.
+     * 
+     * @param c  the component the game is drawn on
+     */
+    public void listenTo (java.awt.Component c)
+    {
+        c.addMouseListener(this);
+        c.addMouseMotionListener(this);
+        c.addKeyListener(this);
+        c.setFocusable(true);
+    }
+    
+    /* (non-Javadoc)
+     * @see java.awt.event.MouseMotionListener#mouseDragged(java.awt.event.MouseEvent)
+     */
+    @Override
+    public void mouseDragged (MouseEvent e)
+    {
+        mouseX = e.getX();
+        mouseY = e.getY();
+        isMousePressed = true;
+        
+    }
+
+    /* (non-Javadoc)
+     * @see java.awt.event.MouseMotionListener#mouseMoved(java.awt.event.MouseEvent)
+     */
+    @Override
+    public void mouseMoved (MouseEvent e)
+    {
+        mouseX = e.getX();
+        mouseY = e.getY();
+        isMousePressed = false;
+        
+    }
+
+    /* (non-Javadoc)
+     * @see java.awt.event.MouseListener#mouseClicked(java.awt.event.MouseEvent)
+     */
+    @Override
+    public void mouseClicked (MouseEvent e)
+    {
+        mouseX = e.getX();
+        mouseY = e.getY();
+    }
+
+    /* (non-Javadoc)
+     * @see java.awt.event.MouseListener#mouseEntered(java.awt.event.MouseEvent)
+     */
+    @Override
+    public void mouseEntered (MouseEvent e)
+    {
+        mouseX = e.getX();
+        mouseY = e.getY();
+    }
+
+    /* (non-Javadoc)
+     * @see java.awt.event.MouseListener#mouseExited(java.awt.event.MouseEvent)
+     */
+    @Override
+    public void mouseExited (MouseEvent e)
+    {
+        mouseX = e.getX();
+        mouseY = e.getY();
+    }
+
+    /* (non-Javadoc)
+     * @see java.awt.event.MouseListener#mousePressed(java.awt.event.MouseEvent)
+     */
+    @Override
+    public void mousePressed (MouseEvent e)
+    {
+        mouseX = e.getX();
+        mouseY = e.getY();
+        isMousePressed = true;
+        
+    }
+
+    /* (non-Javadoc)
+     * @see java.awt.event.MouseListener#mouseReleased(java.awt.event.MouseEvent)
+     */
+    @Override
+    public void mouseReleased (MouseEvent e)
+    {
+        mouseX = e.getX();
+        mouseY = e.getY();
+        isMousePressed = false;
+        
+    }
+
+    /* (non-Javadoc)
+     * @see java.awt.event.KeyListener#keyPressed(java.awt.event.KeyEvent)
+     */
+    @Override
+    public void keyPressed (KeyEvent e)
+    {
+        // 'P' or the space bar pauses and resumes the game.
+        
+        if (e.getKeyCode() == KeyEvent.VK_P || e.getKeyCode() == KeyEvent.VK_SPACE)
+            game.togglePause();
+        
+        // F3 shows and hides the timings.
+        
+        if (e.getKeyCode() == KeyEvent.VK_F3)
+            game.toggleStats();
+    }
+
+    /* (non-Javadoc)
+     * @see java.awt.event.KeyListener#keyReleased(java.awt.event.KeyEvent)
+     */
+    @Override
+    public void keyReleased (KeyEvent e)
+    {
+    }
+
+    /* (non-Javadoc)
+     * @see java.awt.event.KeyListener#keyTyped(java.awt.event.KeyEvent)
+     */
+    @Override
+    public void keyTyped (KeyEvent e)
+    {
+    }
+}
@@ -1,7 +1,6 @@
 package game;
 
 import java.awt.*;
-import java.awt.event.*;
 import java.io.*;
 import java.util.Scanner;
 import javax.swing.JPanel;
@@ -12,7 +11,7 @@ import javax.swing.JPanel;
  * 
  * @author pajensen
  */
-public class GamePanel extends JPanel implements MouseListener, MouseMotionListener
+public class GamePanel extends JPanel
 {
     /* Static variables */
    
@@ -24,8 +23,6 @@ public class GamePanel extends JPanel implements MouseListener, MouseMotionListe
     /* Object fields and methods */
    
     private Game enclosingGame;  // A reference back to the Game object that created 'this' object.
-    public int mouseX, mouseY;
-    public boolean isMousePressed;
     
     
     /**
@@ -36,16 +33,16 @@ public class GamePanel extends JPanel implements MouseListener, MouseMotionListe
      * object if we want.
      * 
      * @param enclosingGame the Game object that is creating this panel
+     * @param input         the mouse and keyboard state to keep up to date
      */
-    public GamePanel (Game enclosingGame)
+    public GamePanel (Game enclosingGame, GameInput input)
     {
         // Keep track of the Game object that created this panel.
         //   That way, we can call methods in the game object when needed.
         
         this.enclosingGame = enclosingGame;
         
-        this.addMouseListener(this);
-        this.addMouseMotionListener(this);
+        input.listenTo(this);
     }
     
     /**
@@ -76,82 +73,4 @@ public class GamePanel extends JPanel implements MouseListener, MouseMotionListe
     {
         return new Dimension(800,600);
     }
-
-    /* (non-Javadoc)
-     * @see java.awt.event.MouseMotionListener#mouseDragged(java.awt.event.MouseEvent)
-     */
-    @Override
-    public void mouseDragged (MouseEvent e)
-    {
-        mouseX = e.getX();
-        mouseY = e.getY();
-        isMousePressed = true;
-        
-    }
-
-    /* (non-Javadoc)
-     * @see java.awt.event.MouseMotionListener#mouseMoved(java.awt.event.MouseEvent)
-     */
-    @Override
-    public void mouseMoved (MouseEvent e)
-    {
-        mouseX = e.getX();
-        mouseY = e.getY();
-        isMousePressed = false;
-        
-    }
-
-    /* (non-Javadoc)
-     * @see java.awt.event.MouseListener#mouseClicked(java.awt.event.MouseEvent)
-     */
-    @Override
-    public void mouseClicked (MouseEvent e)
-    {
-        mouseX = e.getX();
-        mouseY = e.getY();
-    }
-
-    /* (non-Javadoc)
-     * @see java.awt.event.MouseListener#mouseEntered(java.awt.event.MouseEvent)
-     */
-    @Override
-    public void mouseEntered (MouseEvent e)
-    {
-        mouseX = e.getX();
-        mouseY = e.getY();
-    }
-
-    /* (non-Javadoc)
-     * @see java.awt.event.MouseListener#mouseExited(java.awt.event.MouseEvent)
-     */
-    @Override
-    public void mouseExited (MouseEvent e)
-    {
-        mouseX = e.getX();
-        mouseY = e.getY();
-    }
-
-    /* (non-Javadoc)
-     * @see java.awt.event.MouseListener#mousePressed(java.awt.event.MouseEvent)
-     */
-    @Override
-    public void mousePressed (MouseEvent e)
-    {
-        mouseX = e.getX();
-        mouseY = e.getY();
-        isMousePressed = true;
-        
-    }
-
-    /* (non-Javadoc)
-     * @see java.awt.event.MouseListener#mouseReleased(java.awt.event.MouseEvent)
-     */
-    @Override
-    public void mouseReleased (MouseEvent e)
-    {
-        mouseX = e.getX();
-        mouseY = e.getY();
-        isMousePressed = false;
-        
-    }
 }
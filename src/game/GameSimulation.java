@@ -0,0 +1,825 @@
+/**
+ * 
+ */
+package game;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.List;
+
+/**
+ * The game simulation:  enemies, towers, effects, lives, and money,
+ * and the rules that move them forward in time.  This class knows
+ * nothing about Swing.  It can be stepped by the Game front-end, or
+ * stepped directly (as fast as we like) by tests and tools.
+ */
+public class GameSimulation implements TowerCommands
+{
+    /* Static fields and methods */
+
+    static final int PATH_CLEARANCE = 40;   // How far towers must be from the path
+
+    // The phases of a tick, as timed by the tick timers (see getTickTimers).
+
+    static final int ADVANCE = 0, LEAKS = 1, SPAWN = 2, SORT = 3, PLACEMENT = 4,
+                     TOWERS = 5, EFFECTS = 6, APPLY = 7, TICK = 8;
+    static final String[] PHASE_NAMES = { "advance", "leaks", "spawn", "sort", "placement",
+                                          "towers", "effects", "apply", "tick" };
+    static final int TIMER_WINDOW = 300;   // Ticks in each window of the timers (5 seconds)
+
+    static final double TIMER_TICK = 1 / 60.0;   // The width of a timing wheel slot, in seconds
+    static final int TIMER_SLOTS = 256;          // Slots in a timing wheel (about 4 seconds)
+
+    // This string controls how enemies are created when no wave file
+    //   is given (see setWaveScript and WaveFile).
+    //   's' means to create a snail.
+    //   'v' means to create a van.
+    //   0-9 means delay this many tenths of a second.
+
+    static final String DEFAULT_WAVES = "s9v9s99s99s1s1s1s7" +
+                                        "s8s7ssss9s9s9s9s6s7s8";
+
+    /* Object fields and methods */
+
+    private GameClock      clock;
+    private CommandSource  commandSource;
+
+    PathPoints gardenPath;
+    DistanceField pathDistance;   // Distance to the path, for placing towers
+
+    EnemyStore             enemies;
+    java.util.List<Tower>  towers;
+    java.util.List<Effect> effects;
+    EffectPool             effectPool; // Recycled salt crystals
+    private TimingWheel    towerTimers;  // When each reloading tower is ready (by tower number)
+    private TimingWheel    effectTimers; // When each effect ends (by position in the effect list)
+    private int[]          effectTimer;  // The timer of each effect in the effect list
+    private int[]          expiredEffects; // Scratch space for removing effects
+    int[]                  readyTowers;  // The numbers of the towers that may fire
+    int                    readyCount;
+    private boolean[]      reloading;    // Towers that fired this tick (by tower number)
+    CommandBuffer          commands;   // Changes to make at the end of the tick
+    SpatialGrid            enemyGrid;  // Where the enemies are, rebuilt each tick
+    ProgressIndex          enemyOrder; // The enemies in order along the path, rebuilt each tick
+    private TickWorker     worker;     // Scratch space for the serial tick
+    private ParallelTick   parallel;   // Null for a serial tick
+    private PhaseTimers    tickTimers; // How long each phase of the tick takes
+    GameEvents             events;     // Told about spawns, shots, kills, leaks, and ticks
+
+    int lives, money;
+    int towerCost, killReward;   // The economy:  the price of a tower, and the pay for a kill
+    int leaks, kills;            // Enemies that reached the end, and enemies killed
+    private int[] towerKills;    // Kills made by each tower (by tower number)
+    protected int frameCounter;
+    private long lastTime;
+    private double time;           // Seconds simulated so far
+
+    private SpawnSchedule waves;   // When each enemy appears
+    private double waveTime;       // Seconds since the waves began
+
+    private TargetPolicy targetPolicy;   // For new towers
+
+    private boolean placingTower;
+    private boolean isGameOver;
+
+    /**
+     * Builds a new simulation on the given path.  The clock is only
+     * used by update(); step() takes its time delta from the caller.
+     *
+     * The initial pool sizes can be set with the game.enemyPool and
+     * game.effectPool system properties.  (The pools grow if needed.)
+     * The game.threads property sets the number of threads used by
+     * each tick (see setThreads), and game.targetPolicy sets how new
+     * towers choose their targets ("first", "last", or "closest").
+     * Setting game.jfr to true reports what happens in the game as
+     * flight recorder events (see GameEvents).
+     *
+     * @param gardenPath  the path the enemies follow
+     * @param clock       the clock used to measure frame times
+     */
+    public GameSimulation (PathPoints gardenPath, GameClock clock)
+    {
+        this.gardenPath = gardenPath;
+        this.clock = clock;
+        this.pathDistance = gardenPath.getDistanceField();
+
+        // Create a list for the snails, towers, and effects
+
+        enemies = new EnemyStore(gardenPath, Integer.getInteger("game.enemyPool", 256));
+        towers = new ArrayList<Tower>();
+        effects = new ArrayList<Effect>();
+        effectPool = new EffectPool(Integer.getInteger("game.effectPool", 64));
+        towerTimers = new TimingWheel(TIMER_TICK, TIMER_SLOTS, 16);
+        effectTimers = new TimingWheel(TIMER_TICK, TIMER_SLOTS, effectPool.getStats().capacity);
+        effectTimer = new int[effectPool.getStats().capacity];
+        expiredEffects = new int[16];
+        readyTowers = new int[16];
+        reloading = new boolean[16];
+        commands = new CommandBuffer();
+        enemyGrid = new SpatialGrid(600, 600, 50);
+        enemyOrder = new ProgressIndex();
+        tickTimers = new PhaseTimers(TIMER_WINDOW, PHASE_NAMES);
+        events = Boolean.getBoolean("game.jfr") ? loadFlightRecorderEvents() : GameEvents.NONE;
+        worker = new TickWorker(commands);
+        setThreads(Integer.getInteger("game.threads", 1));
+        targetPolicy = TargetPolicy.valueOf(System.getProperty("game.targetPolicy", "first").toUpperCase(Locale.ROOT));
+
+        // Reset the score.
+
+        lives = 7;
+        money = 200;
+        towerCost = 120;
+        killReward = 10;
+        towerKills = new int[16];
+
+        // Reset the frame counter and time
+
+        frameCounter = 0;
+        lastTime = clock.nanoTime();
+
+        // Reset the generator
+
+        waves = WaveTimeline.fromScript(DEFAULT_WAVES);
+        waveTime = 0;
+
+        // Set Game Over
+
+        isGameOver = false;
+
+        // Reset the tower placement
+
+        placingTower = false;
+    }
+
+    /**
+     * Replaces the string that controls how enemies are created (see
+     * DEFAULT_WAVES), and starts it from the beginning.  When the end of
+     * the string is reached, it starts over.
+     *
+     * @param waveScript  the enemies and delays, such as "s9v9s99"
+     * @throws IllegalArgumentException if the string is empty, holds
+     *         anything but 's', 'v', and digits, or never waits
+     */
+    public void setWaveScript (String waveScript)
+    {
+        setWaves(WaveTimeline.fromScript(waveScript));
+    }
+
+    /**
+     * Replaces the schedule that controls when enemies are created (such
+     * as one read by WaveFile.open), and starts it from the beginning.
+     *
+     * @param waves  the schedule
+     */
+    public void setWaves (SpawnSchedule waves)
+    {
+        this.waves = waves;
+        waveTime = 0;
+    }
+
+    /**
+     * Sets the object that issues player commands each tick.
+     *
+     * @param commandSource  the command source, or null for none
+     */
+    public void setCommandSource (CommandSource commandSource)
+    {
+        this.commandSource = commandSource;
+    }
+
+    /**
+     * Sets the object told about what happens in the game (see
+     * GameEvents).
+     *
+     * @param events  the events, or GameEvents.NONE
+     */
+    public void setEvents (GameEvents events)
+    {
+        this.events = events;
+    }
+
+    /**
+     * Advances the simulation by the time that has passed on the
+     * clock since the last call.
+     */
+    public void update ()
+    {
+        // See how long it was since the last frame.
+
+        long currentTime = clock.nanoTime();
+        double elapsedTime = (currentTime - lastTime) / 1e9;  // Compute elapsed seconds
+        lastTime = currentTime;  // Our current time is the next frame's last time
+
+        step(elapsedTime);
+    }
+
+    /**
+     * Advances the simulation by the specified number of seconds.
+     * This function is responsible for the 'physics' of the game:
+     * it moves the enemies, adds new enemies, places towers, and
+     * lets the towers and effects interact with the enemies.
+     *
+     * @param elapsedTime  the number of seconds to simulate
+     */
+    public void step (double elapsedTime)
+    {
+        // Check for Game Over
+
+        if (lives < 1)
+        {
+            isGameOver = true;
+            lives = 0;
+        }
+
+        if (isGameOver)
+            return;
+
+        // Count this frame (I don't use this any more)
+
+        frameCounter++;
+        time += elapsedTime;
+
+        // Each phase of the tick is timed (see getTickTimers).
+
+        long tickStart = tickTimers.start();
+
+        // Advance the snail along the garden path.
+
+        if (parallel != null)
+            parallel.advanceEnemies(this, elapsedTime);
+        else
+            enemies.advance(elapsedTime);
+
+        long t = tickTimers.lap(ADVANCE, tickStart);
+
+        // Remove snails that reach the end.  (Each kind of enemy costs
+        //   a different number of lives.)
+
+        for (int i = 0; i < enemies.size(); i++)
+            if (enemies.isAlive(i) && enemies.isAtTheEnd(i))
+            {
+                enemies.kill(i);
+                lives -= enemies.getType(i).livesCost;
+                leaks++;
+                events.leak(enemies.getHandle(i), enemies.getType(i), lives);
+            }
+
+        t = tickTimers.lap(LEAKS, t);
+
+        // Generate new enemies
+
+        generateEnemies(elapsedTime);
+        t = tickTimers.lap(SPAWN, t);
+
+        // Sort the enemies into the grid, so that effects only look at
+        //   the enemies near them, and into path order, so that towers
+        //   only look at the enemies on their stretches of the path.
+
+        enemyGrid.rebuild(enemies);
+        enemyOrder.rebuild(enemies);
+        t = tickTimers.lap(SORT, t);
+
+        // Place towers
+
+        if (commandSource != null)
+            commandSource.issueCommands(this);
+        t = tickTimers.lap(PLACEMENT, t);
+
+        // Tower interaction.  Only the towers that have reloaded are
+        //   run; the others are asleep in the timing wheel.
+
+        updateReadyTowers();
+        int ready = readyCount;
+
+        if (parallel != null)
+            parallel.interactTowers(this);
+        else
+            for (int i = 0; i < readyCount; i++)
+                towers.get(readyTowers[i]).interact(this, worker);
+
+        t = tickTimers.lap(TOWERS, t);
+
+        // Effect interaction, then the removal of the effects whose time
+        //   is up.
+
+        if (parallel != null)
+            parallel.interactEffects(this, elapsedTime);
+        else
+            for (int i = 0; i < effects.size(); i++)
+                effects.get(i).interact(this, worker, elapsedTime);
+
+        removeExpiredEffects();
+        t = tickTimers.lap(EFFECTS, t);
+
+        // Make all of the changes that were asked for during this tick
+        //   (kills, money, new effects and enemies, removals).
+
+        commands.apply(this);
+        t = tickTimers.lap(APPLY, t);
+
+        tickTimers.record(TICK, t - tickStart);
+        tickTimers.endSample();
+        events.tick(frameCounter, tickTimers, enemies.size(), ready, effects.size());
+    }
+
+    /**
+     * Sets the number of threads each tick uses.  With more than one,
+     * moving the enemies and running the towers and effects is spread
+     * over a pool of threads (see ParallelTick).  The game plays out
+     * exactly the same either way.
+     *
+     * @param threads  the number of threads (1 for a serial tick)
+     */
+    public void setThreads (int threads)
+    {
+        if (parallel != null)
+            parallel.shutdown();
+
+        parallel = threads > 1 ? new ParallelTick(threads) : null;
+    }
+
+    /**
+     * Returns the timers of the phases of the tick.  They are always
+     * running (they cost a System.nanoTime() call per phase, and make no
+     * garbage).  The histograms are filled by the thread that steps the
+     * simulation, and may be read from any thread.
+     *
+     * @return the timers
+     */
+    public PhaseTimers getTickTimers ()
+    {
+        return tickTimers;
+    }
+
+    /**
+     * Returns the number of towers that are ready to fire (not reloading).
+     *
+     * @return the number of towers
+     */
+    public int getReadyTowerCount ()
+    {
+        return readyCount;
+    }
+
+    /**
+     * Returns true once the player has run out of lives.
+     *
+     * @return true if the game is over
+     */
+    public boolean isGameOver ()
+    {
+        return isGameOver;
+    }
+
+    /**
+     * Returns the statistics of the enemy pool.
+     *
+     * @return the statistics
+     */
+    public PoolStats getEnemyPoolStats ()
+    {
+        return enemies.getStats();
+    }
+
+    /**
+     * Returns the statistics of the effect pool.
+     *
+     * @return the statistics
+     */
+    public PoolStats getEffectPoolStats ()
+    {
+        return effectPool.getStats();
+    }
+
+    /**
+     * Returns the number of enemies a tower has killed.
+     *
+     * @param towerNumber  the position of the tower in the tower list
+     * @return the number of kills
+     */
+    public int getTowerKills (int towerNumber)
+    {
+        return towerNumber < towerKills.length ? towerKills[towerNumber] : 0;
+    }
+
+    /**
+     * Counts a kill (called as the command buffer is applied).
+     *
+     * @param towerNumber  the tower that made the kill, or -1 if none did
+     */
+    void countKill (int towerNumber)
+    {
+        kills++;
+
+        if (towerNumber < 0)
+            return;
+
+        if (towerNumber >= towerKills.length)
+            towerKills = java.util.Arrays.copyOf(towerKills, Math.max(towerNumber + 1, 2 * towerKills.length));
+
+        towerKills[towerNumber]++;
+    }
+
+    /**
+     * Puts a tower that has just fired to sleep until it has reloaded
+     * (called as the command buffer is applied).  It is taken off the
+     * ready list at the start of the next tower phase.
+     *
+     * @param towerNumber  the position of the tower in the tower list
+     * @param seconds      how long it takes to reload
+     */
+    void reloadTower (int towerNumber, double seconds)
+    {
+        if (towerNumber >= reloading.length)
+            reloading = java.util.Arrays.copyOf(reloading, Math.max(towerNumber + 1, 2 * reloading.length));
+
+        reloading[towerNumber] = true;
+        towerTimers.schedule(time + seconds, towerNumber);
+    }
+
+    /**
+     * Adds a new effect to the end of the effect list, and sets the
+     * timer that removes it when its time is up (called as the command
+     * buffer is applied).
+     *
+     * @param e  the effect
+     */
+    void addEffect (Effect e)
+    {
+        int i = effects.size();
+        effects.add(e);
+
+        if (i == effectTimer.length)
+            effectTimer = java.util.Arrays.copyOf(effectTimer, 2 * i);
+
+        effectTimer[i] = effectTimers.schedule(time + e.getLifetime(), i);
+    }
+
+    /**
+     * Returns a hash of the state of the game:  the score, the clocks,
+     * and where every enemy, tower, and effect is.  Two games that have
+     * played out the same way have the same hash (see Replay).
+     *
+     * @return the hash
+     */
+    public int stateHash ()
+    {
+        long h = 17;
+        h = mix(h, lives);
+        h = mix(h, money);
+        h = mix(h, kills);
+        h = mix(h, leaks);
+        h = mix(h, placingTower ? 1 : 0);
+        h = mix(h, Double.doubleToLongBits(time));
+        h = mix(h, Double.doubleToLongBits(waveTime));
+
+        h = mix(h, enemies.size());
+        for (int i = 0; i < enemies.size(); i++)
+        {
+            h = mix(h, Double.doubleToLongBits(enemies.getProgress(i)));
+            h = mix(h, enemies.getType(i).ordinal() * 2 + (enemies.isAlive(i) ? 1 : 0));
+        }
+
+        h = mix(h, towers.size());
+        for (int i = 0; i < towers.size(); i++)
+            h = mix(h, ((long) towers.get(i).getX() << 32) ^ towers.get(i).getY());
+
+        h = mix(h, effects.size());
+        for (int i = 0; i < effects.size(); i++)
+            h = mix(h, ((long) effects.get(i).getX() << 32) ^ effects.get(i).getY());
+
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Writes the state of the game to a saved game, between ticks (see
+     * SaveGame).  Each part of the game writes its own section.
+     *
+     * @param out  the buffer to write to
+     * @throws IllegalStateException if the game holds a tower or effect
+     *         that cannot be saved
+     */
+    void saveState (ByteBuffer out)
+    {
+        out.putInt(gardenPath.path.size());
+        out.putDouble(gardenPath.getLength());
+
+        // The score, the economy, and the clocks.
+
+        out.putInt(lives).putInt(money).putInt(towerCost).putInt(killReward);
+        out.putInt(leaks).putInt(kills).putInt(frameCounter);
+        out.putDouble(time).putDouble(waveTime);
+        out.put(placingTower ? (byte) 1 : 0).put(isGameOver ? (byte) 1 : 0);
+        out.putInt(targetPolicy.ordinal());
+        SaveGame.putInts(out, towerKills, towerKills.length);
+
+        // The enemies.
+
+        enemies.saveState(out);
+        enemyOrder.saveState(out);
+
+        // The towers, and which of them are ready to fire.
+
+        out.putInt(towers.size());
+        for (Tower t : towers)
+        {
+            if (!(t instanceof Salt))
+                throw new IllegalStateException("Cannot save a " + t.getClass().getSimpleName());
+            ((Salt) t).saveState(out);
+        }
+
+        SaveGame.putInts(out, readyTowers, readyCount);
+        SaveGame.putBooleans(out, reloading, reloading.length);
+        towerTimers.saveState(out);
+
+        // The effects (by their slots in the pool), and their timers.
+
+        effectPool.saveState(out);
+
+        out.putInt(effects.size());
+        for (Effect e : effects)
+        {
+            if (!(e instanceof SaltCrystal))
+                throw new IllegalStateException("Cannot save a " + e.getClass().getSimpleName());
+            out.putInt(((SaltCrystal) e).poolSlot);
+        }
+
+        SaveGame.putInts(out, effectTimer, effects.size());
+        effectTimers.saveState(out);
+    }
+
+    /**
+     * Replaces the state of the game with a saved one (see SaveGame).
+     * This must be a new simulation, with its waves set, since the waves
+     * are moved on from the start to the saved wave time.
+     *
+     * @param in  the buffer to read from
+     * @throws IllegalArgumentException if the game was saved on another path
+     */
+    void restoreState (ByteBuffer in)
+    {
+        if (in.getInt() != gardenPath.path.size() || in.getDouble() != gardenPath.getLength())
+            throw new IllegalArgumentException("A saved game for another path");
+
+        lives = in.getInt();
+        money = in.getInt();
+        towerCost = in.getInt();
+        killReward = in.getInt();
+        leaks = in.getInt();
+        kills = in.getInt();
+        frameCounter = in.getInt();
+        time = in.getDouble();
+        waveTime = in.getDouble();
+        placingTower = in.get() != 0;
+        isGameOver = in.get() != 0;
+        targetPolicy = TargetPolicy.values()[SaveGame.getIndex(in, TargetPolicy.values().length)];
+
+        if (!(waveTime >= 0 && waveTime <= time))
+            throw new IllegalArgumentException("A damaged saved game");
+
+        towerKills = new int[SaveGame.peekCount(in)];
+        SaveGame.getInts(in, towerKills);
+
+        // Bring the waves up to the saved time.  (Asking for every enemy
+        //   due by then leaves the schedule exactly where it was.)
+
+        CommandBuffer skipped = new CommandBuffer();
+        waves.spawnDue(waveTime, skipped);
+        skipped.clear();
+
+        enemies.restoreState(in);
+        enemyOrder.restoreState(in);
+
+        int towerCount = in.getInt();
+        towers.clear();
+        for (int i = 0; i < towerCount; i++)
+            towers.add(Salt.restoreState(in, i, gardenPath));
+
+        readyTowers = new int[Math.max(16, SaveGame.peekCount(in))];
+        readyCount = SaveGame.getInts(in, readyTowers);
+        for (int i = 0; i < readyCount; i++)
+            if (readyTowers[i] < 0 || readyTowers[i] >= towerCount)
+                throw new IllegalArgumentException("A damaged saved game");
+        reloading = new boolean[Math.max(16, SaveGame.peekCount(in))];
+        SaveGame.getBooleans(in, reloading);
+        towerTimers.restoreState(in);
+
+        effectPool.restoreState(in);
+
+        int effectCount = in.getInt();
+        effects.clear();
+        for (int i = 0; i < effectCount; i++)
+            effects.add(effectPool.getCrystal(SaveGame.getIndex(in, effectPool.getStats().capacity)));
+
+        effectTimer = new int[Math.max(16, effectCount)];
+        SaveGame.getInts(in, effectTimer);
+        effectTimers.restoreState(in);
+    }
+
+    /**
+     * Returns the number of seconds simulated so far.
+     *
+     * @return the time
+     */
+    public double getTime ()
+    {
+        return time;
+    }
+
+    /**
+     * Returns how towers placed from now on choose their targets.
+     *
+     * @return the target policy
+     */
+    public TargetPolicy getTargetPolicy ()
+    {
+        return targetPolicy;
+    }
+
+    /**
+     * Sets how towers placed from now on choose their targets.
+     *
+     * @param policy  the target policy
+     */
+    public void setTargetPolicy (TargetPolicy policy)
+    {
+        targetPolicy = policy;
+    }
+
+    /**
+     * Returns true if the player has selected a tower and
+     * has not placed it yet.
+     *
+     * @return true if a tower is being placed
+     */
+    public boolean isPlacingTower ()
+    {
+        return placingTower;
+    }
+
+    /* (non-Javadoc)
+     * @see game.TowerCommands#selectTower()
+     */
+    @Override
+    public boolean selectTower ()
+    {
+        // Does the user have enough money for a tower?  If so, set a flag
+        //   that indicates we should build a tower.
+
+        if (money > towerCost)
+            placingTower = true;
+
+        return placingTower;
+    }
+
+    /* (non-Javadoc)
+     * @see game.TowerCommands#placeTower(int, int)
+     */
+    @Override
+    public boolean placeTower (int x, int y)
+    {
+        // Is the user currently placing a tower, and is the location
+        //   on the map sufficiently far away from the path?
+
+        if (placingTower && canBuildAt(x, y))
+        {
+            Coordinate c = new Coordinate (x, y);
+            Salt t = new Salt (c);
+            t.number = towers.size();
+            t.setCoverage(gardenPath.getCoverage(x, y, Salt.RANGE));
+            t.setTargetPolicy(targetPolicy);
+            towers.add(t);
+
+            // A new tower is ready to fire.
+
+            if (readyCount == readyTowers.length)
+                readyTowers = java.util.Arrays.copyOf(readyTowers, 2 * readyCount);
+            readyTowers[readyCount++] = t.number;
+
+            money = money - towerCost;
+            placingTower = false;
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns true if a tower could be built at the given location:
+     * it is on the map, and far enough away from the path.
+     *
+     * @param x  the x location
+     * @param y  the y location
+     * @return true if the location is buildable
+     */
+    public boolean canBuildAt (int x, int y)
+    {
+        return x > 0 && x < 600 &&
+               y > 0 && y < 600 &&
+               pathDistance.isBuildable(x, y, PATH_CLEARANCE);
+    }
+
+    /**
+     * Brings the ready list up to date before the towers run:  the
+     * towers that fired last tick are squeezed out, and the towers whose
+     * timers have come due are added.
+     */
+    private void updateReadyTowers ()
+    {
+        int kept = 0;
+        for (int i = 0; i < readyCount; i++)
+        {
+            int t = readyTowers[i];
+            if (t < reloading.length && reloading[t])
+                reloading[t] = false;
+            else
+                readyTowers[kept++] = t;
+        }
+        readyCount = kept;
+
+        int due = towerTimers.expire(time);
+        if (readyCount + due > readyTowers.length)
+            readyTowers = java.util.Arrays.copyOf(readyTowers, Math.max(readyCount + due, 2 * readyTowers.length));
+
+        for (int k = 0; k < due; k++)
+            readyTowers[readyCount++] = towerTimers.getExpired(k);
+    }
+
+    /**
+     * Removes the effects whose timers have come due.  Each one is
+     * removed by moving the last effect into its place.  (Going from the
+     * highest position down, the effect that is moved is never one that
+     * is being removed.)  Pooled crystals go back to the pool.
+     */
+    private void removeExpiredEffects ()
+    {
+        int count = effectTimers.expire(time);
+        if (count == 0)
+            return;
+
+        if (expiredEffects.length < count)
+            expiredEffects = new int[Math.max(count, 2 * expiredEffects.length)];
+
+        for (int k = 0; k < count; k++)
+            expiredEffects[k] = effectTimers.getExpired(k);
+        java.util.Arrays.sort(expiredEffects, 0, count);
+
+        for (int k = count - 1; k >= 0; k--)
+        {
+            int i = expiredEffects[k];
+            int last = effects.size() - 1;
+            Effect e = effects.get(i);
+
+            if (i != last)
+            {
+                effects.set(i, effects.get(last));
+                effectTimer[i] = effectTimer[last];
+                effectTimers.setValue(effectTimer[i], i);
+            }
+            effects.remove(last);
+
+            if (e instanceof SaltCrystal)
+                effectPool.release((SaltCrystal) e);
+        }
+    }
+
+    private static long mix (long h, long value)
+    {
+        h = (h ^ value) * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    /**
+     * Loads the flight recorder events.  They are built for Java 11
+     * (see GameEvents), so they are only looked up by name.
+     *
+     * @return the events, or NONE if they cannot be loaded
+     */
+    private static GameEvents loadFlightRecorderEvents ()
+    {
+        try
+        {
+            return (GameEvents) Class.forName("game.FlightRecorderEvents").newInstance();
+        }
+        catch (ReflectiveOperationException | LinkageError e)
+        {
+            System.out.println ("Flight recorder events are not available (" + e + "), so none are reported.");
+            return GameEvents.NONE;
+        }
+    }
+
+    /**
+     * This is just a helper function for generating enemies each frame.
+     * The wave time moves on by the length of the step, and every enemy
+     * the schedule has due by then is created.  (Several may come due in
+     * one step; late ones get a head start, so spawn timing is the same
+     * whatever the step length.)
+     *
+     * @param deltaTime  the length of the step, in seconds
+     */
+    private void generateEnemies (double deltaTime)
+    {
+        waveTime += deltaTime;
+        waves.spawnDue(waveTime, commands);
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * 
+ */
+package game;
+
+/**
+ * Helpers for generation-checked handles.  A handle packs a slot
+ * number together with the generation of that slot.  Each time a
+ * slot is recycled its generation goes up, so a handle kept from
+ * before the slot was recycled no longer matches, and can be
+ * recognized as stale instead of quietly referring to whatever
+ * lives in the slot now.
+ */
+public final class Handle
+{
+    /* Static fields and methods */
+
+    static final int SLOT_BITS = 20;                         // Up to a million slots
+    static final int SLOT_MASK = (1 << SLOT_BITS) - 1;
+    static final int MAX_SLOTS = SLOT_MASK + 1;
+    static final int GENERATION_MASK = (1 << (31 - SLOT_BITS)) - 1;
+
+    /** A handle that never refers to anything. */
+    public static final int NONE = -1;
+
+    /**
+     * Builds a handle.
+     *
+     * @param slot        the slot number
+     * @param generation  the generation of the slot
+     * @return the handle (never negative)
+     * @throws IllegalArgumentException if the slot number does not fit
+     *         in a handle
+     */
+    public static int make (int slot, int generation)
+    {
+        if (slot < 0 || slot > SLOT_MASK)
+            throw new IllegalArgumentException("Slot " + slot + " does not fit in a handle");
+
+        return ((generation & GENERATION_MASK) << SLOT_BITS) | slot;
+    }
+
+    /**
+     * Returns the slot number stored in a handle.
+     *
+     * @param handle  a handle
+     * @return the slot number
+     */
+    public static int slot (int handle)
+    {
+        return handle & SLOT_MASK;
+    }
+
+    /**
+     * Returns the generation stored in a handle.
+     *
+     * @param handle  a handle
+     * @return the generation
+     */
+    public static int generation (int handle)
+    {
+        return (handle >>> SLOT_BITS) & GENERATION_MASK;
+    }
+
+    /**
+     * Returns the generation that follows the given one.
+     *
+     * @param generation  a generation
+     * @return the next generation
+     */
+    public static int next (int generation)
+    {
+        return (generation + 1) & GENERATION_MASK;
+    }
+
+    /**
+     * Not callable.  (All methods are static.)
+     */
+    private Handle ()
+    {
+    }
+}
@@ -0,0 +1,213 @@
+/**
+ * 
+ */
+package game;
+
+import java.awt.image.*;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.zip.CRC32;
+
+/**
+ * A folder of decoded images, so that later launches can skip decoding
+ * the JPEGs and PNGs.  Each image is kept in its own file, holding its
+ * size and its pixels (one ARGB int each, in the machine's byte order),
+ * along with a key made from the contents of the original file.  If the
+ * original changes, the key no longer matches, and the image is decoded
+ * and cached again.
+ *
+ * Cached files are memory-mapped (once their header has been checked)
+ * and the pixels copied in bulk into a new image's own pixel array,
+ * which is far cheaper than decoding.  The pixels are copied, not
+ * wrapped in place:  Java2D cannot draw quickly from an image over a
+ * custom buffer, and such an image would keep the file open.
+ *
+ * Each file holds, in the machine's byte order:
+ *
+ *   int    MAGIC
+ *   int    VERSION
+ *   long   the key of the original file (see contentKey)
+ *   int    width
+ *   int    height
+ *   int    1 if the image has alpha, or 0
+ *   int    0 (padding)
+ *   then width * height ARGB pixels, row by row.
+ *
+ * (A file written on a machine with the other byte order does not
+ * start with MAGIC, so it is simply decoded and cached again.)
+ */
+public class ImageCache
+{
+    /* Static fields and methods */
+
+    static final int MAGIC = 0x54444943;   // "TDIC"
+    static final int VERSION = 1;
+    static final int HEADER = 32;          // Bytes before the pixels
+
+    /**
+     * Returns the key for the contents of a file:  its length and
+     * its CRC-32.
+     *
+     * @param bytes  the contents of the file
+     * @return the key
+     */
+    public static long contentKey (byte[] bytes)
+    {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+        return ((long) bytes.length << 32) | crc.getValue();
+    }
+
+    /* Object fields and methods */
+
+    private File directory;
+
+    /**
+     * Builds a cache that keeps its files in the given folder.  The
+     * folder is made if it does not exist.
+     *
+     * @param directory  the folder
+     */
+    public ImageCache (File directory)
+    {
+        this.directory = directory;
+        directory.mkdirs();
+    }
+
+    /**
+     * Returns a cached image, or null if the image is not cached, the
+     * cached copy is out of date (or unreadable).  The image is a
+     * TYPE_INT_ARGB or TYPE_INT_RGB image.
+     *
+     * @param name  the name of the image (its resource filename)
+     * @param key   the key of the original file's contents
+     * @return the image, or null
+     */
+    public BufferedImage get (String name, long key)
+    {
+        File file = fileFor(name);
+        if (!file.isFile())
+            return null;
+
+        try
+        {
+            RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try
+            {
+                // Check the header before mapping anything.  A mapped file
+                //   stays open until the garbage collector unmaps it, and
+                //   on Windows an open file cannot be replaced, so a stale
+                //   file that was mapped could not be cached again.
+
+                FileChannel channel = raf.getChannel();
+                ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.nativeOrder());
+                while (header.hasRemaining() && channel.read(header) >= 0)
+                    ;
+
+                if (header.hasRemaining() || header.getInt(0) != MAGIC || header.getInt(4) != VERSION
+                        || header.getLong(8) != key)
+                    return null;
+
+                int width = header.getInt(16), height = header.getInt(20);
+                boolean alpha = header.getInt(24) != 0;
+                if (width <= 0 || height <= 0 || channel.size() != HEADER + 4L * width * height)
+                    return null;
+
+                MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+                // Copy the pixels straight into the image's own array.
+
+                BufferedImage image = new BufferedImage(width, height, alpha ? BufferedImage.TYPE_INT_ARGB
+                                                                             : BufferedImage.TYPE_INT_RGB);
+                int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+
+                map.position(HEADER);
+                IntBuffer source = map.slice().order(ByteOrder.nativeOrder()).asIntBuffer();
+                source.get(pixels);
+
+                return image;
+            }
+            finally
+            {
+                raf.close();
+            }
+        }
+        catch (IOException e)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Caches an image, replacing any older copy.  The file is written
+     * under another name and then moved into place, so a reader never
+     * sees half of it.
+     *
+     * @param name   the name of the image (its resource filename)
+     * @param key    the key of the original file's contents
+     * @param image  the decoded image
+     * @throws IOException if the file cannot be written
+     */
+    public void put (String name, long key, BufferedImage image) throws IOException
+    {
+        int width = image.getWidth(), height = image.getHeight();
+        boolean alpha = image.getColorModel().hasAlpha();
+        int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+
+        File file = fileFor(name);
+        File temp = File.createTempFile(file.getName(), ".tmp", directory);
+        try
+        {
+            RandomAccessFile raf = new RandomAccessFile(temp, "rw");
+            try
+            {
+                // (Written, not mapped:  a mapped file stays open until the
+                //   garbage collector unmaps it, and on Windows it could
+                //   then not be moved into place.)
+
+                ByteBuffer data = ByteBuffer.allocate(HEADER + 4 * pixels.length).order(ByteOrder.nativeOrder());
+                data.putInt(MAGIC);
+                data.putInt(VERSION);
+                data.putLong(key);
+                data.putInt(width);
+                data.putInt(height);
+                data.putInt(alpha ? 1 : 0);
+                data.putInt(0);
+                data.asIntBuffer().put(pixels);
+                data.clear();
+
+                FileChannel channel = raf.getChannel();
+                while (data.hasRemaining())
+                    channel.write(data);
+
+                // Make sure it is on the disk before it takes the place
+                //   of the old copy.
+
+                channel.force(true);
+            }
+            finally
+            {
+                raf.close();
+            }
+
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally
+        {
+            temp.delete();   // (Already gone if it was moved.)
+        }
+    }
+
+    /* Helpers */
+
+    private File fileFor (String name)
+    {
+        return new File(directory, name.replace('/', '_') + ".pixels");
+    }
+}
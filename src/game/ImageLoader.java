@@ -3,12 +3,30 @@
  */
 package game;
 
-import java.awt.Image;
-import java.io.IOException;
-import java.io.InputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
+ * Images are converted, as they are loaded, into the screen's own
+ * (compatible) format, so Java2D can copy them to the screen quickly
+ * (and keep them in video memory).  ImageIO often returns indexed or
+ * custom formats that must be converted pixel by pixel every time they
+ * are drawn.  Images that are left in such a format (for example, with
+ * -Dgame.convertImages=false) are reported as they are loaded, and
+ * listed by getSlowImages().
+ * 
+ * Setting game.imageCache to a folder keeps the decoded pixels there
+ * (see ImageCache), so later launches skip decoding.
+ * 
+ * The loader may be used from many threads at once (see AssetPreloader).
+ * Different images are decoded in parallel; a thread that asks for an
+ * image that another thread is decoding waits for that decode instead
+ * of starting its own.
+ * 
  * @author pajensen
  *
  */
@@ -20,15 +38,23 @@ public class ImageLoader
     
     static private String pathBase = "resources/";
     
+    // The names of the BufferedImage types, by number (for reports).
+    
+    static private final String[] TYPE_NAMES = { "TYPE_CUSTOM", "TYPE_INT_RGB", "TYPE_INT_ARGB",
+        "TYPE_INT_ARGB_PRE", "TYPE_INT_BGR", "TYPE_3BYTE_BGR", "TYPE_4BYTE_ABGR", "TYPE_4BYTE_ABGR_PRE",
+        "TYPE_USHORT_565_RGB", "TYPE_USHORT_555_RGB", "TYPE_BYTE_GRAY", "TYPE_USHORT_GRAY",
+        "TYPE_BYTE_BINARY", "TYPE_BYTE_INDEXED" };
+    
     /**
      * Returns a reference to an ImageLoader singleton.  This
      * method allows applications to all share a single ImageLoader
      * object.  (Only one ImageLoader object will ever be created,
-     * and this method returns a reference to it.)
+     * and this method returns a reference to it.)  Any thread
+     * may call it.
      * 
      * @return the ImageLoader object
      */
-    static public ImageLoader getLoader()
+    static synchronized public ImageLoader getLoader()
     {
         // If an ImageLoader object has not been built, build one.
         
@@ -42,14 +68,37 @@ public class ImageLoader
 
     /* Object fields and methods */
     
-    private Map<String,Image> imageMap;  // Maps filenames to image objects
+    private ConcurrentMap<String,FutureTask<Image>> imageMap;  // Maps filenames to (loading) images
+    private Map<String,String> slowImages;  // Filenames of slow images, and why they are slow (synchronized)
+    private boolean convertImages;  // True to convert images to the screen's format
+    private ImageCache cache;       // Decoded images on disk, or null
     
     /**
      * Not callable outside of this class.
      */
     private ImageLoader ()
     {
-        imageMap = new TreeMap<String, Image>();
+        imageMap = new ConcurrentHashMap<String, FutureTask<Image>>();
+        slowImages = Collections.synchronizedMap(new TreeMap<String, String>());
+        convertImages = !"false".equals(System.getProperty("game.convertImages"));
+        
+        String cacheFolder = System.getProperty("game.imageCache");
+        if (cacheFolder != null)
+            cache = new ImageCache(new File(cacheFolder));
+    }
+    
+    /**
+     * Returns the images that were left in a format Java2D cannot draw
+     * quickly, and why.
+     * 
+     * @return a map from filenames to descriptions of their formats
+     */
+    public Map<String,String> getSlowImages ()
+    {
+        synchronized (slowImages)
+        {
+            return new TreeMap<String, String>(slowImages);
+        }
     }
     
     /**
@@ -63,33 +112,248 @@ public class ImageLoader
      * @param filename the filename of an image to load
      * @return the image stored in that file
      */
-    public Image getImage (String filename)
+    public Image getImage (final String filename)
     {
-        Image loadedImage;
-        
-        // See if the image is in the map.  If so, return it.
+        // See if the image is in the map (loaded, or being loaded).  If
+        //   not, put a task to load it in the map, and run it ourselves.
         
-        loadedImage = imageMap.get(filename);
-        if (loadedImage != null)
-            return loadedImage;
+        FutureTask<Image> task = imageMap.get(filename);
+        if (task == null)
+        {
+            FutureTask<Image> newTask = new FutureTask<Image>(new Callable<Image>()
+            {
+                public Image call () throws IOException
+                {
+                    return loadImage(filename);
+                }
+            });
+            
+            task = imageMap.putIfAbsent(filename, newTask);
+            if (task == null)
+            {
+                task = newTask;
+                task.run();
+            }
+        }
         
-        // Load the image.
+        // Wait for the image (if another thread is still loading it).
         
         try
         {
-            ClassLoader myLoader = this.getClass().getClassLoader();
-            InputStream imageStream = myLoader.getResourceAsStream(pathBase + filename);
-            loadedImage = javax.imageio.ImageIO.read(imageStream);            
+            return task.get();
         }
         catch (Exception e)
         {
-            System.out.println ("Could not load " + pathBase + filename + ": " + e.getMessage());
+            Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+            System.out.println ("Could not load " + pathBase + filename + ": " + cause.getMessage());
             System.exit(0);
+            return null;
         }
+    }
+    
+    /**
+     * Decodes an image (or takes it from the image cache, if it is
+     * there and up to date) and converts it into the screen's format,
+     * unless it already is.  Slow images are reported.
+     * 
+     * @param filename the filename of an image, relative to "resources"
+     * @return the loaded image
+     * @throws IOException if the image cannot be found or decoded
+     */
+    private Image loadImage (String filename) throws IOException
+    {
+        BufferedImage loadedImage;
         
-        // Put the image in the map and return it.
+        if (cache == null)
+        {
+            BufferedImage decoded = readImage(filename);
+            loadedImage = convertImages ? toCompatible(decoded) : decoded;
+        }
+        else
+        {
+            byte[] bytes = readResource(filename);
+            long key = ImageCache.contentKey(bytes);
+            
+            BufferedImage decoded = cache.get(filename, key);
+            if (decoded == null)
+            {
+                decoded = decode(bytes);
+                
+                try
+                {
+                    cache.put(filename, key, decoded);
+                }
+                catch (IOException e)
+                {
+                    System.out.println ("Could not cache " + pathBase + filename + ": " + e.getMessage());
+                }
+            }
+            
+            // (Cached pixels are always copied into a fresh image.  An image
+            //   whose pixel array we have touched is never accelerated.)
+            
+            loadedImage = convertImages ? copyToCompatible(decoded) : decoded;
+        }
+        
+        String slowFormat = describeSlowFormat(loadedImage);
+        if (slowFormat != null)
+        {
+            slowImages.put(filename, slowFormat);
+            System.out.println ("Slow image " + pathBase + filename + ": " + slowFormat);
+        }
         
-        imageMap.put(filename,  loadedImage);
         return loadedImage;
     }
+    
+    /**
+     * Decodes an image just as ImageIO returns it, without converting
+     * it or keeping it.
+     * 
+     * @param filename the filename of an image, relative to "resources"
+     * @return the decoded image
+     * @throws IOException if the image cannot be found or decoded
+     */
+    BufferedImage readImage (String filename) throws IOException
+    {
+        return decode(readResource(filename));
+    }
+    
+    /**
+     * Reads the whole of a resource file.
+     * 
+     * @param filename the filename, relative to "resources"
+     * @return the contents of the file
+     * @throws IOException if the file cannot be found or read
+     */
+    private byte[] readResource (String filename) throws IOException
+    {
+        ClassLoader myLoader = this.getClass().getClassLoader();
+        InputStream imageStream = myLoader.getResourceAsStream(pathBase + filename);
+        if (imageStream == null)
+            throw new IOException("No such resource");
+        
+        try
+        {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 16);
+            byte[] chunk = new byte[1 << 16];
+            int count;
+            while ((count = imageStream.read(chunk)) > 0)
+                bytes.write(chunk, 0, count);
+            return bytes.toByteArray();
+        }
+        finally
+        {
+            imageStream.close();
+        }
+    }
+    
+    private static BufferedImage decode (byte[] bytes) throws IOException
+    {
+        BufferedImage decoded = javax.imageio.ImageIO.read(new ByteArrayInputStream(bytes));
+        if (decoded == null)
+            throw new IOException("Unknown image format");
+        return decoded;
+    }
+    
+    /**
+     * Returns an image in the format of the default screen (or, without
+     * a screen, in the plain int-per-pixel format Java2D's software loops
+     * draw fastest), with the same transparency as the original.  If the
+     * image is already in that format, it is returned as is.
+     * 
+     * @param image the image to convert
+     * @return the converted image
+     */
+    static BufferedImage toCompatible (BufferedImage image)
+    {
+        int transparency = image.getColorModel().getTransparency();
+        
+        GraphicsConfiguration gc = getScreenConfiguration();
+        if (gc != null ? image.getColorModel().equals(gc.getColorModel(transparency))
+                       : image.getType() == plainType(transparency))
+            return image;
+        
+        return copyToCompatible(image);
+    }
+    
+    /**
+     * Returns a new image in the format of the default screen (or the
+     * plain int-per-pixel format), holding a copy of an image.
+     * 
+     * @param image the image to copy
+     * @return the new image
+     */
+    static BufferedImage copyToCompatible (BufferedImage image)
+    {
+        int transparency = image.getColorModel().getTransparency();
+        int width = image.getWidth(), height = image.getHeight();
+        
+        GraphicsConfiguration gc = getScreenConfiguration();
+        BufferedImage compatible = gc != null ? gc.createCompatibleImage(width, height, transparency)
+                                              : new BufferedImage(width, height, plainType(transparency));
+        
+        // Copy the pixels (alpha and all) into the new image.
+        
+        Graphics2D g = compatible.createGraphics();
+        try
+        {
+            g.setComposite(AlphaComposite.Src);
+            g.drawImage(image, 0, 0, null);
+        }
+        finally
+        {
+            g.dispose();
+        }
+        
+        return compatible;
+    }
+    
+    private static int plainType (int transparency)
+    {
+        return transparency == Transparency.OPAQUE ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+    }
+    
+    /**
+     * Returns the configuration of the default screen, or null if there
+     * is no screen.
+     * 
+     * @return the graphics configuration, or null
+     */
+    static GraphicsConfiguration getScreenConfiguration ()
+    {
+        if (GraphicsEnvironment.isHeadless())
+            return null;
+        
+        return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+    }
+    
+    /**
+     * Describes why an image would be drawn slowly, or returns null if it
+     * is in a format Java2D draws quickly:  the screen's format, or one
+     * of the plain int-per-pixel formats.
+     * 
+     * @param image the image
+     * @return a description of the slow format, or null
+     */
+    static String describeSlowFormat (BufferedImage image)
+    {
+        GraphicsConfiguration gc = getScreenConfiguration();
+        if (gc != null && image.getColorModel().equals(gc.getColorModel(image.getColorModel().getTransparency())))
+            return null;
+        
+        int type = image.getType();
+        switch (type)
+        {
+            case BufferedImage.TYPE_INT_RGB:
+            case BufferedImage.TYPE_INT_ARGB:
+            case BufferedImage.TYPE_INT_ARGB_PRE:
+            case BufferedImage.TYPE_INT_BGR:
+                return null;
+            default:
+                String name = type < TYPE_NAMES.length ? TYPE_NAMES[type] : "type " + type;
+                String kind = image.getColorModel() instanceof IndexColorModel ? "indexed" :
+                              image.getColorModel().getClass().getSimpleName();
+                return name + " (" + kind + ", " + image.getColorModel().getPixelSize() + " bits per pixel)";
+        }
+    }
 }
@@ -0,0 +1,205 @@
+/**
+ * 
+ */
+package game;
+
+import java.io.*;
+
+/**
+ * Records a game as it is played, so that it can be played again
+ * exactly (see Replay).  The simulation itself is deterministic:  given
+ * the same steps and the same commands on the same ticks, it always
+ * ends up in the same state.  The only things that vary from one run
+ * to the next are the length of each step and the commands the player
+ * issues (the mouse is read whenever a tick happens to run), so those
+ * are all that is recorded, along with a hash of the game state after
+ * every tick to check the replay against.
+ *
+ * The recorder sits between the simulation and the real command
+ * source.  Only commands that the simulation accepts are recorded
+ * (a refused command changes nothing).  Its methods are synchronized,
+ * so that the game can close it from a shutdown hook.
+ *
+ * The recording is a binary file:
+ *
+ *   int    MAGIC
+ *   int    VERSION
+ *   UTF    the path resource, the wave resource ("" for the default
+ *          waves), and the name of the target policy
+ *
+ * followed by records, each a one byte tag and its data:
+ *
+ *   DELTA  double  the length of every step from here on, in seconds
+ *   SELECT         selectTower() on the next tick
+ *   PLACE  short x, short y   placeTower(x, y) on the next tick
+ *   TICK   int     one step, and the state hash after it
+ *
+ * A ten minute game at 60 steps a second is about 180 KB.
+ */
+public class InputRecorder implements CommandSource, TowerCommands, Closeable
+{
+    /* Static fields and methods */
+
+    static final int MAGIC = 0x54445250;   // "TDRP"
+    static final int VERSION = 1;
+
+    static final int DELTA = 1, SELECT = 2, PLACE = 3, TICK = 4;   // Record tags
+
+    /* Object fields and methods */
+
+    private DataOutputStream out;    // Null once writing has failed
+    private File file;
+    private CommandSource source;    // Where the commands really come from
+    private TowerCommands target;    // The simulation, during issueCommands
+    private double delta;            // The step length last recorded
+
+    /**
+     * Starts a recording.
+     *
+     * @param file       the file to write
+     * @param pathName   the path resource the game was built on
+     * @param wavesName  the wave resource, or "" for the default waves
+     * @param policy     the target policy of new towers
+     * @param source     the source of the player's commands
+     * @throws IOException if the file cannot be written
+     */
+    public InputRecorder (File file, String pathName, String wavesName, TargetPolicy policy,
+                          CommandSource source) throws IOException
+    {
+        this.file = file;
+        this.source = source;
+
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeUTF(pathName);
+        out.writeUTF(wavesName);
+        out.writeUTF(policy.name());
+    }
+
+    /**
+     * Steps the simulation and records the step.  (The simulation asks
+     * this object for its commands during the step.)
+     *
+     * @param sim      the simulation, whose command source is this object
+     * @param seconds  the length of the step
+     */
+    public synchronized void step (GameSimulation sim, double seconds)
+    {
+        if (seconds != delta)
+        {
+            delta = seconds;
+            write(DELTA, 0, 0, seconds);
+        }
+
+        sim.step(seconds);
+        write(TICK, sim.stateHash(), 0, 0);
+    }
+
+    /* (non-Javadoc)
+     * @see game.CommandSource#issueCommands(game.TowerCommands)
+     */
+    @Override
+    public void issueCommands (TowerCommands commands)
+    {
+        target = commands;
+        source.issueCommands(this);
+        target = null;
+    }
+
+    /* (non-Javadoc)
+     * @see game.TowerCommands#selectTower()
+     */
+    @Override
+    public boolean selectTower ()
+    {
+        boolean accepted = target.selectTower();
+        if (accepted)
+            write(SELECT, 0, 0, 0);
+
+        return accepted;
+    }
+
+    /* (non-Javadoc)
+     * @see game.TowerCommands#placeTower(int, int)
+     */
+    @Override
+    public boolean placeTower (int x, int y)
+    {
+        boolean accepted = target.placeTower(x, y);
+        if (accepted)
+            write(PLACE, x, y, 0);
+
+        return accepted;
+    }
+
+    /**
+     * Writes out anything still buffered.
+     */
+    public synchronized void flush ()
+    {
+        try
+        {
+            if (out != null)
+                out.flush();
+        }
+        catch (IOException e)
+        {
+            fail(e);
+        }
+    }
+
+    /**
+     * Finishes the recording.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized void close () throws IOException
+    {
+        if (out != null)
+            out.close();
+        out = null;
+    }
+
+    /* Helpers */
+
+    private void write (int tag, int a, int b, double seconds)
+    {
+        if (out == null)
+            return;
+
+        try
+        {
+            out.writeByte(tag);
+
+            if (tag == DELTA)
+                out.writeDouble(seconds);
+            else if (tag == PLACE)
+            {
+                out.writeShort(a);
+                out.writeShort(b);
+            }
+            else if (tag == TICK)
+                out.writeInt(a);
+        }
+        catch (IOException e)
+        {
+            fail(e);
+        }
+    }
+
+    private void fail (IOException e)
+    {
+        // A broken recording must not stop the game.
+
+        System.out.println ("Could not record to " + file + ": " + e.getMessage());
+        try
+        {
+            out.close();
+        }
+        catch (IOException ignored)
+        {
+        }
+        out = null;
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * 
+ */
+package game;
+
+import java.util.Arrays;
+
+/**
+ * Counts how often each duration was seen, in a fixed amount of
+ * memory, so that percentiles can be read back without keeping every
+ * sample.  Durations are in nanoseconds.
+ *
+ * The buckets are log-linear:  durations under 64 ns get a bucket each,
+ * and every doubling above that is split into 32 buckets, so a bucket
+ * is never more than about 3% wide.  That is 1888 buckets for any
+ * duration a long can hold, and recording is a few shifts and an
+ * increment, with no allocation.
+ *
+ * A histogram is written by one thread.  Another thread may read it
+ * (to draw it, say), and only ever sees slightly stale counts.
+ */
+public class LatencyHistogram
+{
+    /* Static fields and methods */
+
+    static final int SUB_BITS = 5;
+    static final int SUB_BUCKETS = 1 << SUB_BITS;              // Buckets per doubling
+    static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;   // Enough for any long
+
+    /**
+     * Returns the bucket a duration falls in.
+     *
+     * @param nanos  the duration (not negative)
+     * @return the bucket number
+     */
+    static int bucketOf (long nanos)
+    {
+        if (nanos < 2 * SUB_BUCKETS)
+            return (int) nanos;
+
+        int shift = 63 - Long.numberOfLeadingZeros(nanos) - SUB_BITS;
+        return shift * SUB_BUCKETS + (int) (nanos >>> shift);
+    }
+
+    /**
+     * Returns the largest duration that falls in a bucket.
+     *
+     * @param bucket  the bucket number
+     * @return the duration, in nanoseconds
+     */
+    static long highestIn (int bucket)
+    {
+        if (bucket < 2 * SUB_BUCKETS)
+            return bucket;
+
+        int shift = bucket / SUB_BUCKETS - 1;
+        long low = (long) (bucket - shift * SUB_BUCKETS) << shift;
+        return low + (1L << shift) - 1;
+    }
+
+    /* Object fields and methods */
+
+    private long[] counts;
+    private long count;
+    private long max;
+
+    /**
+     * Builds an empty histogram.
+     */
+    public LatencyHistogram ()
+    {
+        counts = new long[BUCKETS];
+    }
+
+    /**
+     * Records one duration.
+     *
+     * @param nanos  the duration, in nanoseconds (negative ones count as 0)
+     */
+    public void record (long nanos)
+    {
+        if (nanos < 0)
+            nanos = 0;
+
+        counts[bucketOf(nanos)]++;
+        count++;
+        if (nanos > max)
+            max = nanos;
+    }
+
+    /**
+     * Returns the duration that the given fraction of the recorded
+     * durations are no longer than (to within a bucket).
+     *
+     * @param fraction  the fraction, such as 0.99
+     * @return the duration, in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getPercentile (double fraction)
+    {
+        long wanted = (long) Math.ceil(fraction * count);
+        if (wanted < 1)
+            wanted = 1;
+
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++)
+        {
+            seen += counts[b];
+            if (seen >= wanted)
+                return Math.min(highestIn(b), max);
+        }
+
+        return max;
+    }
+
+    /**
+     * Returns the longest duration recorded.
+     *
+     * @return the duration, in nanoseconds
+     */
+    public long getMax ()
+    {
+        return max;
+    }
+
+    /**
+     * Returns the number of durations recorded.
+     *
+     * @return the count
+     */
+    public long getCount ()
+    {
+        return count;
+    }
+
+    /**
+     * Forgets every duration.
+     */
+    public void reset ()
+    {
+        Arrays.fill(counts, 0);
+        count = 0;
+        max = 0;
+    }
+
+    /**
+     * Makes this histogram a copy of another.
+     *
+     * @param other  the histogram to copy
+     */
+    public void copyFrom (LatencyHistogram other)
+    {
+        System.arraycopy(other.counts, 0, counts, 0, BUCKETS);
+        count = other.count;
+        max = other.max;
+    }
+}
@@ -0,0 +1,223 @@
+/**
+ * 
+ */
+package game;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs the busy phases of a tick (moving the enemies, the towers, and
+ * the effects) on a ForkJoin pool.
+ *
+ * Each phase is cut into chunks of consecutive enemies, towers, or
+ * effects, and each chunk has its own TickWorker.  While a phase runs,
+ * the shared game state is only read (the enemy grid, the enemy store)
+ * or touched one item at a time (each enemy's own entries, each effect's own
+ * position), so chunks never get in each other's way.  When the phase is
+ * over, the command buffers of the chunks are added to the simulation's
+ * buffer in chunk order.  That is exactly the order a serial tick would
+ * have made the same requests in, so a parallel game plays out exactly
+ * like a serial one, no matter how many threads there are.
+ *
+ * The chunk tasks are built once and reused, so a tick does not make
+ * garbage of its own.
+ */
+public class ParallelTick
+{
+    /* Static fields and methods */
+
+    static final int ENEMY_CHUNK = 1024;    // Enemies moved by one task
+    static final int TOWER_CHUNK = 4;       // Towers run by one task
+    static final int EFFECT_CHUNK = 16;     // Effects run by one task
+
+    static final int ADVANCE = 0, TOWERS = 1, EFFECTS = 2;   // The phases
+
+    /* Object fields and methods */
+
+    private ForkJoinPool pool;
+    private Chunk[] chunks;
+    private int chunkCount;
+    private Phase phase;
+
+    /**
+     * Builds a parallel tick that uses the given number of threads.
+     *
+     * @param threads  the number of threads in the pool
+     */
+    public ParallelTick (int threads)
+    {
+        pool = new ForkJoinPool(threads);
+        chunks = new Chunk[0];
+        phase = new Phase();
+    }
+
+    /**
+     * Moves every living enemy along the path.
+     *
+     * @param g          the simulation
+     * @param deltaTime  the number of seconds to move
+     */
+    public void advanceEnemies (GameSimulation g, double deltaTime)
+    {
+        run(g, ADVANCE, g.enemies.size(), ENEMY_CHUNK, deltaTime);
+    }
+
+    /**
+     * Lets every tower that is ready to fire interact with the game,
+     * then adds the requests they made to the simulation's command
+     * buffer.
+     *
+     * @param g  the simulation
+     */
+    public void interactTowers (GameSimulation g)
+    {
+        run(g, TOWERS, g.readyCount, TOWER_CHUNK, 0);
+        merge(g);
+    }
+
+    /**
+     * Lets every effect interact with the game, then adds the requests they made to the
+     * simulation's command buffer.
+     *
+     * @param g          the simulation
+     * @param deltaTime  the length of the step, in seconds
+     */
+    public void interactEffects (GameSimulation g, double deltaTime)
+    {
+        run(g, EFFECTS, g.effects.size(), EFFECT_CHUNK, deltaTime);
+        merge(g);
+    }
+
+    /**
+     * Stops the threads.  This object cannot be used afterward.
+     */
+    public void shutdown ()
+    {
+        pool.shutdown();
+    }
+
+    /* Helpers */
+
+    private void run (GameSimulation g, int kind, int items, int chunkSize, double deltaTime)
+    {
+        chunkCount = (items + chunkSize - 1) / chunkSize;
+        if (chunkCount == 0)
+            return;
+
+        if (chunks.length < chunkCount)
+        {
+            int old = chunks.length;
+            chunks = Arrays.copyOf(chunks, Math.max(chunkCount, 2 * old));
+            for (int c = old; c < chunks.length; c++)
+                chunks[c] = new Chunk();
+        }
+
+        for (int c = 0; c < chunkCount; c++)
+        {
+            Chunk chunk = chunks[c];
+            chunk.reinitialize();
+            chunk.g = g;
+            chunk.kind = kind;
+            chunk.from = c * chunkSize;
+            chunk.to = Math.min(items, chunk.from + chunkSize);
+            chunk.deltaTime = deltaTime;
+        }
+
+        // A single chunk is not worth handing to the pool.
+
+        if (chunkCount == 1)
+            chunks[0].compute();
+        else
+        {
+            // Sleep until the phase wakes this thread.  (A thread outside
+            //   the pool that blocks in invoke() or join() makes a little
+            //   wait node each time, which would be garbage every tick.)
+
+            phase.reinitialize();
+            phase.waiter = Thread.currentThread();
+            phase.finished = false;
+            pool.execute(phase);
+            while (!phase.finished)
+                LockSupport.park(this);
+            phase.join();   // (Done, or all but.  Throws anything a chunk threw.)
+        }
+    }
+
+    private void merge (GameSimulation g)
+    {
+        for (int c = 0; c < chunkCount; c++)
+            g.commands.append(chunks[c].worker.commands);
+    }
+
+    /**
+     * The task for a whole phase:  it forks every chunk, waits for them
+     * all, then wakes the thread waiting on the phase (even if a chunk
+     * threw).
+     */
+    private class Phase extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        transient Thread waiter;
+        volatile boolean finished;
+
+        @Override
+        protected void compute ()
+        {
+            try
+            {
+                for (int c = chunkCount - 1; c > 0; c--)
+                    chunks[c].fork();
+
+                chunks[0].compute();
+
+                for (int c = 1; c < chunkCount; c++)
+                    chunks[c].join();
+            }
+            finally
+            {
+                finished = true;
+                LockSupport.unpark(waiter);
+            }
+        }
+    }
+
+    /**
+     * The task for one chunk of a phase.
+     */
+    private static class Chunk extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        final TickWorker worker = new TickWorker(new CommandBuffer());
+
+        GameSimulation g;
+        int kind, from, to;
+        double deltaTime;
+
+        @Override
+        protected void compute ()
+        {
+            if (kind == ADVANCE)
+                g.enemies.advance(from, to, deltaTime);
+
+            else if (kind == TOWERS)
+            {
+                List<Tower> towers = g.towers;
+                for (int i = from; i < to; i++)
+                    towers.get(g.readyTowers[i]).interact(g, worker);
+            }
+
+            else
+            {
+                List<Effect> effects = g.effects;
+                for (int i = from; i < to; i++)
+                    effects.get(i).interact(g, worker, deltaTime);
+            }
+        }
+    }
+}
@@ -5,16 +5,32 @@ package game;
 
 import java.awt.Color;
 import java.awt.Graphics;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.*;
 
 /**
+ * The path is read once, then compiled into arrays:  the start of each
+ * segment, the direction each segment points (a unit vector), and the
+ * distance along the path to the start of each segment.  After that, a
+ * position on the path is just a distance, and every enemy shares this
+ * one object.
+ * 
  * @author pajensen
  *
  */
 public class PathPoints
 {
+    private static final Color PATH_COLOR = new Color(1f, 0f, 1f);
+    
     List<Coordinate> path;
     
+    private double[] pointX, pointY;    // The path points
+    private double[] directionX, directionY;  // Unit vector along each segment
+    private double[] startDistance;     // Distance along the path to each point
+    private int lastSegment;            // The number of the final segment
+    private DistanceField distanceField;  // Built the first time it is needed
+    
     /** This constructor does the following:
      *     - It creates a new ArrayList to hold the path, and stores it in the path variable 
      *     - It reads a number of coordinates, n, from the scanner
@@ -33,6 +49,70 @@ public class PathPoints
              Coordinate c = new Coordinate(s.nextInt(), s.nextInt());
              path.add(c);
          }
+         
+         compile();
+     }
+     
+     /**
+      * Reads a path from a file in the "resources" directory.
+      * 
+      * @param filename  the filename of the path, such as "path_2.txt"
+      * @return the path
+      * @throws IOException if the file cannot be found
+      */
+     public static PathPoints load (String filename) throws IOException
+     {
+         InputStream pointStream = PathPoints.class.getClassLoader().getResourceAsStream("resources/" + filename);
+         if (pointStream == null)
+             throw new IOException("No such resource: resources/" + filename);
+         
+         try
+         {
+             return new PathPoints(new Scanner(pointStream));
+         }
+         finally
+         {
+             pointStream.close();
+         }
+     }
+     
+     /**
+      * Builds the arrays that describe the path.  Segment i runs
+      * from point i to point i+1.
+      */
+     private void compile ()
+     {
+         int n = path.size();
+         
+         pointX = new double[n];
+         pointY = new double[n];
+         directionX = new double[n];
+         directionY = new double[n];
+         startDistance = new double[n];
+         lastSegment = Math.max(0, n - 2);
+         
+         for (int i = 0; i < n; i++)
+         {
+             pointX[i] = path.get(i).x;
+             pointY[i] = path.get(i).y;
+         }
+         
+         for (int i = 0; i < n - 1; i++)
+         {
+             double dx = pointX[i+1] - pointX[i];
+             double dy = pointY[i+1] - pointY[i];
+             double length = Math.sqrt(dx * dx + dy * dy);
+             
+             // (A zero length segment has no direction; it is skipped over.)
+             
+             if (length > 0)
+             {
+                 directionX[i] = dx / length;
+                 directionY[i] = dy / length;
+             }
+             
+             startDistance[i+1] = startDistance[i] + length;
+         }
      }
 
      /** Returns a new path position object that represents
@@ -42,12 +122,166 @@ public class PathPoints
       */
      public PathPosition getStart ()
      {
-         return new PathPosition(new ArrayList<Coordinate>(path));
+         return new PathPosition(this);
      }    
      
+     /**
+      * Returns the total length of the path, in pixels.
+      * 
+      * @return the length of the path
+      */
+     public double getLength ()
+     {
+         return startDistance[startDistance.length - 1];
+     }
+     
+     /**
+      * Returns the segment that contains the given distance along
+      * the path.  This is a binary search.
+      * 
+      * @param distance  a distance along the path
+      * @return the segment number
+      */
+     public int findSegment (double distance)
+     {
+         int low = 0, high = lastSegment;
+         
+         // Find the last segment that starts at or before the distance.
+         
+         while (low < high)
+         {
+             int mid = (low + high + 1) >>> 1;
+             if (startDistance[mid] <= distance)
+                 low = mid;
+             else
+                 high = mid - 1;
+         }
+         
+         return low;
+     }
+     
+     /**
+      * Returns the segment that contains the given distance along
+      * the path, starting the search at a segment that is known to
+      * be at or before it.  Things only move forward along the path,
+      * so this usually takes zero or one steps.
+      * 
+      * @param distance  a distance along the path
+      * @param hint      a segment number at or before the distance
+      * @return the segment number
+      */
+     public int findSegment (double distance, int hint)
+     {
+         if (hint < 0 || hint > lastSegment || startDistance[hint] > distance)
+             return findSegment(distance);
+         
+         while (hint < lastSegment && startDistance[hint+1] <= distance)
+             hint++;
+         
+         return hint;
+     }
+     
+     /**
+      * Returns the x location of a distance along the path.
+      * 
+      * @param distance  a distance along the path
+      * @param segment   the segment that contains the distance
+      * @return the x location
+      */
+     public double getX (double distance, int segment)
+     {
+         return pointX[segment] + directionX[segment] * (distance - startDistance[segment]);
+     }
+     
+     /**
+      * Returns the y location of a distance along the path.
+      * 
+      * @param distance  a distance along the path
+      * @param segment   the segment that contains the distance
+      * @return the y location
+      */
+     public double getY (double distance, int segment)
+     {
+         return pointY[segment] + directionY[segment] * (distance - startDistance[segment]);
+     }
+     
+     /**
+      * Returns the parts of the path that lie within the given distance
+      * of a point, as distances along the path.  Things on the path are
+      * within reach of the point exactly when their distance along the
+      * path falls in one of these intervals, so a tower can work this
+      * out once, when it is placed.
+      * 
+      * @param px      the x location of the point
+      * @param py      the y location of the point
+      * @param radius  the distance, in pixels
+      * @return the intervals, as pairs {start, end, start, end, ...},
+      *         in order along the path and not touching each other
+      */
+     public double[] getCoverage (double px, double py, double radius)
+     {
+         double[] intervals = new double[2 * startDistance.length];
+         int count = 0;
+         
+         for (int i = 0; i < startDistance.length - 1; i++)
+         {
+             double length = startDistance[i+1] - startDistance[i];
+             if (length <= 0)
+                 continue;
+             
+             // The points of the segment within reach solve
+             //   |start + t * direction - p|^2 <= radius^2, a quadratic in t.
+             
+             double dx = px - pointX[i];
+             double dy = py - pointY[i];
+             double along = dx * directionX[i] + dy * directionY[i];
+             double disc = along * along - (dx * dx + dy * dy - radius * radius);
+             if (disc < 0)
+                 continue;
+             
+             double root = Math.sqrt(disc);
+             double from = Math.max(0, along - root);
+             double to = Math.min(length, along + root);
+             if (from > to)
+                 continue;
+             
+             from += startDistance[i];
+             to += startDistance[i];
+             
+             // Join it to the last interval if they meet (at a corner).
+             
+             if (count > 0 && from <= intervals[count - 1])
+                 intervals[count - 1] = Math.max(intervals[count - 1], to);
+             else
+             {
+                 intervals[count++] = from;
+                 intervals[count++] = to;
+             }
+         }
+         
+         return Arrays.copyOf(intervals, count);
+     }
+     
+     /**
+      * Returns the distance from every pixel of the 600x600 play field
+      * to this path.  It is built the first time it is asked for, and
+      * then shared by every game played on this path.
+      * 
+      * @return the distance field
+      */
+     public synchronized DistanceField getDistanceField ()
+     {
+         if (distanceField == null)
+             distanceField = new DistanceField(this, 600, 600);
+         
+         return distanceField;
+     }
+     
      /**
       * Returns the distance (in pixels) from the
       * specified point to the nearest path point.
+      * This walks every segment; the game itself reads
+      * the distance from a DistanceField instead.
       */
      public double distanceToPath (double px, double py)
      {
@@ -85,11 +319,11 @@ public class PathPoints
              
              double distance;
              if (segDist < 0)
-                 distance = Math.sqrt((vx-sx)*(vx-sx) + (vy-sy)*(vy-sy));
+                 distance = Math.sqrt((px-sx)*(px-sx) + (py-sy)*(py-sy));
              else if (segDist > vl)
-                 distance = Math.sqrt((vx-ex)*(vx-ex) + (vy-ey)*(vy-ey));
+                 distance = Math.sqrt((px-ex)*(px-ex) + (py-ey)*(py-ey));
              else
-                 distance = Math.sqrt(dl*dl - segDist*segDist);
+                 distance = Math.sqrt(Math.max(0, dl*dl - segDist*segDist));  // Never NaN on the line
              
              // If the distance is smaller than existing distance, keep it.
              
@@ -108,7 +342,7 @@ public class PathPoints
       */
      public void drawPath (Graphics g)
      {
-         g.setColor(new Color(1f, 0f, 1f));
+         g.setColor(PATH_COLOR);
          for (int i = 0; i < path.size()-1; i ++)
          {
              g.drawLine(path.get(i).x, path.get(i).y, path.get(i+1).x, path.get(i+1).y);
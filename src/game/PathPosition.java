@@ -4,30 +4,41 @@
 package game;
 
 
-import java.util.List;
-
 /**
+ * A position along a path.  The position is just a distance from
+ * the start of the path; the path object does the work of turning
+ * it into an (x, y) location.  The segment holding the position is
+ * remembered, so moving forward never searches the whole path.
+ * 
  * @author pajensen
  *
  */
 public class PathPosition
 {
+    private PathPoints path;
+    private double distance;
     private int segment;
-    private double percentage;
-    private List<Coordinate> points;
+    private double previousDistance;   // Where we were before the last advance
+    
+    PathPosition (PathPoints path)
+    {
+        this(path, 0);
+    }
     
-    PathPosition (List<Coordinate> points)
+    PathPosition (PathPoints path, double distance)
     {
-        this.segment = 0;
-        this.percentage = 0;
-        this.points = points;           
+        this.path = path;
+        this.distance = distance;
+        this.segment = path.findSegment(distance);
+        this.previousDistance = distance;
     }
     
     PathPosition (PathPosition other)
     {
+        this.path = other.path;
+        this.distance = other.distance;
         this.segment = other.segment;
-        this.percentage = other.percentage;
-        this.points = other.points;
+        this.previousDistance = other.previousDistance;
     }
     
     /**
@@ -38,7 +49,38 @@ public class PathPosition
      */
     public boolean isAtTheEnd ()
     {
-        return segment == points.size()-1;
+        return distance >= path.getLength();
+    }
+    
+    /**
+     * Returns the distance from the start of the path to this position.
+     * 
+     * @return the distance along the path
+     */
+    public double getDistance ()
+    {
+        return distance;
+    }
+    
+    /**
+     * Returns the x location of the current path position.  Unlike
+     * getCoordinate(), this does not build any objects.
+     * 
+     * @return the x location of this position
+     */
+    public double getX ()
+    {
+        return path.getX(distance, segment);
+    }
+    
+    /**
+     * Returns the y location of the current path position.
+     * 
+     * @return the y location of this position
+     */
+    public double getY ()
+    {
+        return path.getY(distance, segment);
     }
     
     /**
@@ -52,55 +94,36 @@ public class PathPosition
      */
     public Coordinate getCoordinate ()
     {
-        if (isAtTheEnd ())
-            return points.get(points.size()-1);
-        
-        Coordinate start = points.get(segment);
-        Coordinate end = points.get(segment+1);
-        
-        double dx = end.x - start.x;
-        double dy = end.y - start.y;
-
-        Coordinate spot = new Coordinate((int)(start.x + dx * percentage), (int)(start.y + dy * percentage));
+        return new Coordinate((int) path.getX(distance, segment), (int) path.getY(distance, segment));
+    }
+    
+    /**
+     * Returns the (x, y) location between the position before the
+     * last advance and the current position.  This is used to draw
+     * smooth motion when frames fall between simulation steps.
+     * 
+     * @param alpha  0 for the previous position, 1 for the current one
+     * @return A Coordinate object containing the blended (x, y) location
+     */
+    public Coordinate getInterpolatedCoordinate (double alpha)
+    {
+        double d = previousDistance + (distance - previousDistance) * alpha;
+        int seg = path.findSegment(d);
         
-        return spot;        
+        return new Coordinate((int) path.getX(d, seg), (int) path.getY(d, seg));
     }
     
     /**
      * This method advances this path position by the specified number
-     * of Cartesian units.  (Pythagorean's theorem is used internally
-     * help with the computation.)
+     * of Cartesian units.  It stops at the end of the path.
      *  
      * @param distance  the distance to travel along the path
      */
     public void advance (double distance)
     {
-        if (isAtTheEnd()) 
-            return;
-        
-        Coordinate start = points.get(segment);        
-        Coordinate end = points.get(segment+1);
-        
-        double dx = end.x - start.x;
-        double dy = end.y - start.y;
-        
-        double totalDist = Math.sqrt(dx * dx + dy * dy);
-        
-        double midx = start.x + dx * percentage;
-        double midy = start.y + dy * percentage;
-        
-        double rx = end.x - midx;
-        double ry = end.y - midy;
-        
-        double remainingDist = Math.sqrt(rx * rx + ry * ry);
+        previousDistance = this.distance;
         
-        if (remainingDist < distance)
-        {
-            segment++;
-            percentage = 0;
-            advance(distance-remainingDist);
-        }
-        else 
-            percentage = (totalDist - remainingDist + distance) / totalDist;
+        this.distance = Math.min(this.distance + distance, path.getLength());
+        this.segment = path.findSegment(this.distance, segment);
     }    
 }
@@ -0,0 +1,148 @@
+/**
+ * 
+ */
+package game;
+
+/**
+ * Times the phases of something that runs over and over (a tick, or
+ * drawing a frame), with a LatencyHistogram per phase.  A phase is
+ * timed by laps:
+ *
+ *   long t = timers.start();
+ *   ... first phase ...
+ *   t = timers.lap(FIRST, t);
+ *   ... second phase ...
+ *   t = timers.lap(SECOND, t);
+ *
+ * so each phase costs one System.nanoTime() call, and nothing is
+ * allocated.  The histograms fill up over a window of samples (see
+ * endSample), which is then copied out to be read, so the numbers
+ * shown are always for the last few seconds, not the whole run.
+ */
+public class PhaseTimers
+{
+    private String[] names;
+    private LatencyHistogram[] current;   // The window being filled
+    private LatencyHistogram[] last;      // The last full window, for reading
+    private long[] latest;                // The last time recorded for each phase
+    private int samples, windowSize;
+
+    /**
+     * Builds the timers.
+     *
+     * @param windowSize  the number of samples in a window
+     * @param names       the name of each phase (phase numbers are
+     *                    positions in this list)
+     */
+    public PhaseTimers (int windowSize, String... names)
+    {
+        this.windowSize = windowSize;
+        this.names = names;
+
+        current = new LatencyHistogram[names.length];
+        last = new LatencyHistogram[names.length];
+        latest = new long[names.length];
+        for (int p = 0; p < names.length; p++)
+        {
+            current[p] = new LatencyHistogram();
+            last[p] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Returns the time to start the first lap from.
+     *
+     * @return the time, in nanoseconds
+     */
+    public long start ()
+    {
+        return System.nanoTime();
+    }
+
+    /**
+     * Ends a phase, recording the time since the given start.
+     *
+     * @param phase  the phase number
+     * @param since  the time the phase started (from start() or lap())
+     * @return the time now, which is when the next phase starts
+     */
+    public long lap (int phase, long since)
+    {
+        long now = System.nanoTime();
+        record(phase, now - since);
+        return now;
+    }
+
+    /**
+     * Records a duration for a phase directly.
+     *
+     * @param phase  the phase number
+     * @param nanos  the duration
+     */
+    public void record (int phase, long nanos)
+    {
+        current[phase].record(nanos);
+        latest[phase] = nanos;
+    }
+
+    /**
+     * Counts one sample (one tick, or one frame).  When the window is
+     * full, it is copied out to be read and a new one is started.
+     */
+    public void endSample ()
+    {
+        if (++samples < windowSize)
+            return;
+
+        for (int p = 0; p < names.length; p++)
+        {
+            last[p].copyFrom(current[p]);
+            current[p].reset();
+        }
+        samples = 0;
+    }
+
+    /**
+     * Returns the number of phases.
+     *
+     * @return the number of phases
+     */
+    public int getPhaseCount ()
+    {
+        return names.length;
+    }
+
+    /**
+     * Returns the name of a phase.
+     *
+     * @param phase  the phase number
+     * @return the name
+     */
+    public String getName (int phase)
+    {
+        return names[phase];
+    }
+
+    /**
+     * Returns the last time recorded for a phase (in the sample just
+     * finished, once endSample has been called).
+     *
+     * @param phase  the phase number
+     * @return the time, in nanoseconds
+     */
+    public long getLatest (int phase)
+    {
+        return latest[phase];
+    }
+
+    /**
+     * Returns the histogram of a phase over the last full window.
+     *
+     * @param phase  the phase number
+     * @return the histogram (updated in place at the end of each window)
+     */
+    public LatencyHistogram getHistogram (int phase)
+    {
+        return last[phase];
+    }
+}
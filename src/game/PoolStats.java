@@ -0,0 +1,76 @@
+/**
+ * 
+ */
+package game;
+
+/**
+ * Counters kept by an object pool.  The pool updates one PoolStats
+ * object in place, so reading the statistics never allocates.
+ */
+public class PoolStats
+{
+    int capacity;    // Slots the pool has room for right now
+    int inUse;       // Slots handed out and not yet returned
+    int highWater;   // The most slots ever in use at once
+    long created;    // Objects (or slots) built, including the initial ones
+    long reused;     // Acquisitions served by a recycled slot
+    int grown;       // Times the pool had to grow
+
+    public int getCapacity ()
+    {
+        return capacity;
+    }
+
+    public int getInUse ()
+    {
+        return inUse;
+    }
+
+    public int getHighWater ()
+    {
+        return highWater;
+    }
+
+    public long getCreated ()
+    {
+        return created;
+    }
+
+    public long getReused ()
+    {
+        return reused;
+    }
+
+    public int getGrown ()
+    {
+        return grown;
+    }
+
+    /**
+     * Records that a slot was handed out.
+     *
+     * @param recycled  true if the slot had been used before
+     */
+    void acquired (boolean recycled)
+    {
+        inUse++;
+        if (inUse > highWater)
+            highWater = inUse;
+        if (recycled)
+            reused++;
+    }
+
+    /**
+     * Records that a slot was returned.
+     */
+    void released ()
+    {
+        inUse--;
+    }
+
+    public String toString ()
+    {
+        return "in use " + inUse + "/" + capacity + ", high water " + highWater +
+               ", created " + created + ", reused " + reused + ", grown " + grown;
+    }
+}
@@ -0,0 +1,281 @@
+/**
+ * 
+ */
+package game;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The living enemies, sorted by how far along the path they are.
+ * Enemies only move along the path, so the enemies within reach of a
+ * tower are the ones whose distance along the path falls in the
+ * tower's coverage (see PathPoints.getCoverage).  With the enemies in
+ * order, finding them is a binary search per interval, and the cost of
+ * choosing a target depends on the enemies in reach, not on how many
+ * enemies there are.
+ *
+ * Like the SpatialGrid, the index is rebuilt once per tick, and then
+ * only read.  Enemies rarely pass each other, so the order from the
+ * last tick (remembered by handle) is nearly sorted already, and an
+ * insertion sort puts it right in close to linear time.  New enemies
+ * go at the front, since they start at the beginning of the path.
+ */
+public class ProgressIndex
+{
+    private int[] order;         // Enemy numbers, sorted by distance along the path
+    private double[] progress;   // The distance along the path of each, in the same order
+    private int count;
+
+    private int[] lastHandles;   // Handles of the enemies in order, for the next rebuild
+    private int lastCount;
+    private boolean[] seen;      // Scratch space for rebuild()
+
+    /**
+     * Builds an empty index.
+     */
+    public ProgressIndex ()
+    {
+        order = new int[64];
+        progress = new double[64];
+        lastHandles = new int[64];
+        seen = new boolean[64];
+    }
+
+    /**
+     * Re-sorts the living enemies.  Positions in the index are good
+     * until the next rebuild.
+     *
+     * @param enemies  the enemies currently in the game
+     */
+    public void rebuild (EnemyStore enemies)
+    {
+        int n = enemies.size();
+        if (order.length < n)
+        {
+            int size = Math.max(n, 2 * order.length);
+            order = new int[size];
+            progress = new double[size];
+            seen = new boolean[size];
+        }
+
+        // Find the enemies that were here last tick, then put the new ones
+        //   first, and the old ones after them in their old order.
+
+        for (int k = 0; k < lastCount; k++)
+        {
+            int i = enemies.resolve(lastHandles[k]);
+            if (i >= 0)
+                seen[i] = true;
+        }
+
+        count = 0;
+        for (int i = 0; i < n; i++)
+            if (!seen[i] && enemies.isAlive(i))
+                order[count++] = i;
+
+        for (int k = 0; k < lastCount; k++)
+        {
+            int i = enemies.resolve(lastHandles[k]);
+            if (i >= 0 && seen[i])
+            {
+                seen[i] = false;
+                if (enemies.isAlive(i))
+                    order[count++] = i;
+            }
+        }
+
+        // Insertion sort (stable, so ties keep their old order).
+
+        for (int k = 0; k < count; k++)
+        {
+            int i = order[k];
+            double d = enemies.getProgress(i);
+
+            int j = k;
+            while (j > 0 && progress[j - 1] > d)
+            {
+                order[j] = order[j - 1];
+                progress[j] = progress[j - 1];
+                j--;
+            }
+
+            order[j] = i;
+            progress[j] = d;
+        }
+
+        // Remember the order for next time.
+
+        if (lastHandles.length < count)
+            lastHandles = new int[Math.max(count, 2 * lastHandles.length)];
+
+        for (int k = 0; k < count; k++)
+            lastHandles[k] = enemies.getHandle(order[k]);
+        lastCount = count;
+    }
+
+    /**
+     * Returns the number of living enemies in the index.
+     *
+     * @return the number of enemies
+     */
+    public int size ()
+    {
+        return count;
+    }
+
+    /**
+     * Returns the enemy at a position in the index.
+     *
+     * @param k  the position (0 is the enemy least far along the path)
+     * @return the enemy number in the store
+     */
+    public int getEnemy (int k)
+    {
+        return order[k];
+    }
+
+    /**
+     * Returns the first position in the index whose enemy is at least
+     * the given distance along the path.
+     *
+     * @param distance  a distance along the path
+     * @return the position, or size() if every enemy is less far along
+     */
+    public int lowerBound (double distance)
+    {
+        int low = 0, high = count;
+        while (low < high)
+        {
+            int mid = (low + high) >>> 1;
+            if (progress[mid] < distance)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * Returns the first position in the index whose enemy is further
+     * along the path than the given distance.
+     *
+     * @param distance  a distance along the path
+     * @return the position, or size() if no enemy is further along
+     */
+    public int upperBound (double distance)
+    {
+        int low = 0, high = count;
+        while (low < high)
+        {
+            int mid = (low + high) >>> 1;
+            if (progress[mid] <= distance)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * Chooses a target within a tower's coverage.
+     *
+     * @param policy     which enemy to choose
+     * @param coverage   the tower's coverage (see PathPoints.getCoverage)
+     * @param x          the x location of the tower
+     * @param y          the y location of the tower
+     * @param enemies    the enemies (for their locations)
+     * @return the enemy number, or -1 if no enemy is within reach
+     */
+    public int findTarget (TargetPolicy policy, double[] coverage, double x, double y, EnemyStore enemies)
+    {
+        switch (policy)
+        {
+        case FIRST:
+            // The enemy at the far end of the last interval that has any.
+
+            for (int k = coverage.length - 2; k >= 0; k -= 2)
+            {
+                int end = upperBound(coverage[k + 1]);
+                if (end > 0 && progress[end - 1] >= coverage[k])
+                    return order[end - 1];
+            }
+            return -1;
+
+        case LAST:
+            // The enemy at the near end of the first interval that has any.
+
+            for (int k = 0; k < coverage.length; k += 2)
+            {
+                int start = lowerBound(coverage[k]);
+                if (start < count && progress[start] <= coverage[k + 1])
+                    return order[start];
+            }
+            return -1;
+
+        default:
+            // Look at every enemy in reach.
+
+            int best = -1;
+            double bestDistance = Double.MAX_VALUE;
+
+            for (int k = 0; k < coverage.length; k += 2)
+            {
+                int end = upperBound(coverage[k + 1]);
+                for (int p = lowerBound(coverage[k]); p < end; p++)
+                {
+                    int i = order[p];
+                    double dx = enemies.getX(i) - x, dy = enemies.getY(i) - y;
+                    double d = dx * dx + dy * dy;
+                    if (d < bestDistance)
+                    {
+                        best = i;
+                        bestDistance = d;
+                    }
+                }
+            }
+            return best;
+        }
+    }
+
+    /**
+     * Writes the order remembered from the last rebuild to a saved game
+     * (see SaveGame).  Enemies that are exactly as far along keep this
+     * order, so it is part of the state of the game.
+     *
+     * @param out  the buffer to write to
+     */
+    void saveState (ByteBuffer out)
+    {
+        SaveGame.putInts(out, lastHandles, lastCount);
+    }
+
+    /**
+     * Reads the order remembered from the last rebuild from a saved game.
+     *
+     * @param in  the buffer to read from
+     */
+    void restoreState (ByteBuffer in)
+    {
+        int n = SaveGame.peekCount(in);
+        if (lastHandles.length < n)
+            lastHandles = new int[n];
+
+        lastCount = SaveGame.getInts(in, lastHandles);
+    }
+
+    /**
+     * Returns true if a distance along the path is within a coverage.
+     *
+     * @param coverage  the intervals (see PathPoints.getCoverage)
+     * @param distance  the distance along the path
+     * @return true if the distance is in one of the intervals
+     */
+    public static boolean covers (double[] coverage, double distance)
+    {
+        for (int k = 0; k < coverage.length; k += 2)
+            if (distance >= coverage[k] && distance <= coverage[k + 1])
+                return true;
+
+        return false;
+    }
+}
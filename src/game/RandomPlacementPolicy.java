@@ -0,0 +1,54 @@
+/**
+ * 
+ */
+package game;
+
+import java.util.Random;
+
+/**
+ * A stand-in player for batch runs:  whenever it can afford a tower,
+ * it builds one at a random legal spot within reach of the path.  The
+ * spots come from a seeded random number generator, so a game played
+ * with the same seed always plays out the same way.
+ */
+public class RandomPlacementPolicy implements CommandSource
+{
+    static final int TRIES_PER_TICK = 50;   // Random spots tried before giving up for this tick
+
+    private Random random;
+    private DistanceField pathDistance;
+    private int reach;
+
+    /**
+     * Builds a policy.
+     *
+     * @param seed          the random seed
+     * @param pathDistance  the distance field of the path being played
+     * @param reach         the furthest from the path a tower is built, in pixels
+     */
+    public RandomPlacementPolicy (long seed, DistanceField pathDistance, int reach)
+    {
+        this.random = new Random(seed);
+        this.pathDistance = pathDistance;
+        this.reach = reach;
+    }
+
+    /* (non-Javadoc)
+     * @see game.CommandSource#issueCommands(game.TowerCommands)
+     */
+    @Override
+    public void issueCommands (TowerCommands commands)
+    {
+        if (!commands.selectTower())
+            return;
+
+        for (int k = 0; k < TRIES_PER_TICK; k++)
+        {
+            int x = 1 + random.nextInt(598);
+            int y = 1 + random.nextInt(598);
+
+            if (pathDistance.distanceAt(x, y) <= reach && commands.placeTower(x, y))
+                return;
+        }
+    }
+}
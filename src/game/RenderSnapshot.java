@@ -0,0 +1,170 @@
+/**
+ * 
+ */
+package game;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Everything the renderer needs to draw one frame:  where each enemy,
+ * tower, and effect is (and was, one step earlier), which sprite it is
+ * drawn with, and the numbers shown in the menu.  The game thread fills
+ * in a snapshot at the end of a tick and then publishes it through a
+ * SnapshotBuffer.  Once published, a snapshot is never changed until
+ * the renderer has let go of it, so the renderer can draw from it while
+ * the simulation moves on.
+ *
+ * The arrays only grow, so a snapshot makes no garbage once it is big
+ * enough for the game.  Only the first enemyCount (towerCount,
+ * effectCount) entries of each array are in use.
+ */
+public class RenderSnapshot
+{
+    int enemyCount;
+    float[] enemyX, enemyY, enemyPreviousX, enemyPreviousY;
+    byte[] enemySprite;                 // Sprite ordinals
+
+    int towerCount, readyTowerCount;   // (Ready:  not reloading)
+    int[] towerX, towerY;
+    byte[] towerSprite;
+
+    int effectCount;
+    int[] effectX, effectY, effectPreviousX, effectPreviousY;
+    byte[] effectSprite;
+
+    int lives, money;
+    boolean paused, placingTower, gameOver;
+
+    private long stepTime;    // The clock time of the last step, in nanoseconds
+    private long stepNanos;   // The length of a step
+
+    /**
+     * Builds an empty snapshot.
+     */
+    public RenderSnapshot ()
+    {
+        enemyX = new float[0];
+        enemyY = new float[0];
+        enemyPreviousX = new float[0];
+        enemyPreviousY = new float[0];
+        enemySprite = new byte[0];
+
+        towerX = new int[0];
+        towerY = new int[0];
+        towerSprite = new byte[0];
+
+        effectX = new int[0];
+        effectY = new int[0];
+        effectPreviousX = new int[0];
+        effectPreviousY = new int[0];
+        effectSprite = new byte[0];
+
+        stepNanos = 1;
+    }
+
+    /**
+     * Copies the state of a simulation into this snapshot.
+     *
+     * @param sim        the simulation
+     * @param paused     true if the game is paused
+     * @param stepTime   the clock time the last step stands for
+     * @param stepNanos  the length of a step, in nanoseconds
+     */
+    public void capture (GameSimulation sim, boolean paused, long stepTime, long stepNanos)
+    {
+        this.stepTime = stepTime;
+        this.stepNanos = stepNanos;
+
+        // The enemies
+
+        EnemyStore enemies = sim.enemies;
+        enemyCount = enemies.size();
+        if (enemyX.length < enemyCount)
+        {
+            int n = Math.max(enemyCount, 2 * enemyX.length);
+            enemyX = Arrays.copyOf(enemyX, n);
+            enemyY = Arrays.copyOf(enemyY, n);
+            enemyPreviousX = Arrays.copyOf(enemyPreviousX, n);
+            enemyPreviousY = Arrays.copyOf(enemyPreviousY, n);
+            enemySprite = Arrays.copyOf(enemySprite, n);
+        }
+
+        for (int i = 0; i < enemyCount; i++)
+        {
+            enemyX[i] = (float) enemies.getX(i);
+            enemyY[i] = (float) enemies.getY(i);
+            enemyPreviousX[i] = (float) enemies.getInterpolatedX(i, 0);
+            enemyPreviousY[i] = (float) enemies.getInterpolatedY(i, 0);
+            enemySprite[i] = (byte) enemies.getType(i).sprite.ordinal();
+        }
+
+        // The towers
+
+        List<Tower> towers = sim.towers;
+        towerCount = towers.size();
+        readyTowerCount = sim.getReadyTowerCount();
+        if (towerX.length < towerCount)
+        {
+            int n = Math.max(towerCount, 2 * towerX.length);
+            towerX = Arrays.copyOf(towerX, n);
+            towerY = Arrays.copyOf(towerY, n);
+            towerSprite = Arrays.copyOf(towerSprite, n);
+        }
+
+        for (int i = 0; i < towerCount; i++)
+        {
+            Tower t = towers.get(i);
+            towerX[i] = t.getX();
+            towerY[i] = t.getY();
+            towerSprite[i] = (byte) t.getSprite().ordinal();
+        }
+
+        // The effects
+
+        List<Effect> effects = sim.effects;
+        effectCount = effects.size();
+        if (effectX.length < effectCount)
+        {
+            int n = Math.max(effectCount, 2 * effectX.length);
+            effectX = Arrays.copyOf(effectX, n);
+            effectY = Arrays.copyOf(effectY, n);
+            effectPreviousX = Arrays.copyOf(effectPreviousX, n);
+            effectPreviousY = Arrays.copyOf(effectPreviousY, n);
+            effectSprite = Arrays.copyOf(effectSprite, n);
+        }
+
+        for (int i = 0; i < effectCount; i++)
+        {
+            Effect e = effects.get(i);
+            effectX[i] = e.getX();
+            effectY[i] = e.getY();
+            effectPreviousX[i] = e.getPreviousX();
+            effectPreviousY[i] = e.getPreviousY();
+            effectSprite[i] = (byte) e.getSprite().ordinal();
+        }
+
+        // The menu
+
+        lives = sim.lives;
+        money = sim.money;
+        this.paused = paused;
+        placingTower = sim.isPlacingTower();
+        gameOver = sim.isGameOver();
+    }
+
+    /**
+     * Returns how far a frame drawn at the given time is between the
+     * previous and the current positions.  (Moving objects are drawn
+     * one step behind, so they can be blended between two known
+     * positions.)
+     *
+     * @param now  the clock time of the frame, in nanoseconds
+     * @return 0 for the previous positions, up to 1 for the current ones
+     */
+    public double getAlpha (long now)
+    {
+        double alpha = (double) (now - stepTime) / stepNanos;
+        return Math.max(0, Math.min(1, alpha));
+    }
+}
@@ -0,0 +1,191 @@
+/**
+ * 
+ */
+package game;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/**
+ * Plays a recorded game again (see InputRecorder), without drawing
+ * it, as fast as the simulation can go.  After every tick the state
+ * of the game is checked against the hash in the recording, so a
+ * replay that goes differently is caught at the first tick where it
+ * differs.  That makes a recording both a regression test (it exits
+ * with status 1 on a mismatch) and a repeatable workload for a
+ * profiler.
+ *
+ * Usage:  java game.Replay FILE [option value]...
+ *
+ *   -loops N      play the recording N times (default 1), for profiling
+ *   -threads N    threads used by each tick (default 1)
+ *
+ * The recording is read into memory before the first tick, so the
+ * replay itself does no I/O.
+ */
+public class Replay implements CommandSource
+{
+    /* Static fields and methods */
+
+    /**
+     * Replays a recording.
+     *
+     * @param args  the file, then the options (see above)
+     * @throws IOException if the recording, path, or waves cannot be read
+     */
+    public static void main (String[] args) throws IOException
+    {
+        if (args.length < 1)
+        {
+            System.out.println ("Usage: java game.Replay FILE [-loops N] [-threads N]");
+            System.exit(2);
+        }
+
+        int loops = 1, threads = 1;
+        for (int i = 1; i + 1 < args.length; i += 2)
+        {
+            if (args[i].equals("-loops"))
+                loops = Integer.parseInt(args[i + 1]);
+            else if (args[i].equals("-threads"))
+                threads = Integer.parseInt(args[i + 1]);
+            else
+                throw new IllegalArgumentException("Unknown option " + args[i]);
+        }
+
+        byte[] recording = Files.readAllBytes(new File(args[0]).toPath());
+
+        for (int loop = 0; loop < loops; loop++)
+        {
+            Replay replay = new Replay(recording, threads);
+
+            long start = System.nanoTime();
+            boolean matched = replay.play();
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            GameSimulation sim = replay.sim;
+            System.out.printf("Replayed %d ticks (%.1f game seconds) in %.3f s, %.0f ticks/s:  " +
+                              "lives=%d money=%d kills=%d leaks=%d towers=%d%n",
+                              replay.ticks, sim.getTime(), seconds, replay.ticks / seconds,
+                              sim.lives, sim.money, sim.kills, sim.leaks, sim.towers.size());
+            sim.setThreads(1);   // (Stops its threads.)
+
+            if (!matched)
+            {
+                System.out.printf("Tick %d:  the state hash is %08x, but the recording has %08x%n",
+                                  replay.ticks, replay.actualHash, replay.expectedHash);
+                System.exit(1);
+            }
+        }
+
+        System.out.println("Every tick matched the recording.");
+    }
+
+    /* Object fields and methods */
+
+    private DataInputStream in;
+    private GameSimulation sim;
+    private int ticks;
+    private int expectedHash, actualHash;
+
+    private int[] commands;      // The commands for the next tick:  x, y (or -1, -1 for select)
+    private int commandCount;
+
+    /**
+     * Reads the header of a recording, and builds the simulation it
+     * was made on.
+     *
+     * @param recording  the contents of the recording
+     * @param threads    the number of threads each tick uses
+     * @throws IOException if the recording is not one, or the path
+     *         or waves cannot be read
+     */
+    public Replay (byte[] recording, int threads) throws IOException
+    {
+        in = new DataInputStream(new ByteArrayInputStream(recording));
+        if (in.readInt() != InputRecorder.MAGIC || in.readInt() != InputRecorder.VERSION)
+            throw new IOException("Not a recording (or from another version)");
+
+        String pathName = in.readUTF();
+        String wavesName = in.readUTF();
+        TargetPolicy policy = TargetPolicy.valueOf(in.readUTF());
+
+        sim = new GameSimulation(PathPoints.load(pathName), GameClock.SYSTEM);
+        if (wavesName.length() > 0)
+            sim.setWaves(WaveFile.open(wavesName));
+        sim.setTargetPolicy(policy);
+        sim.setThreads(threads);
+        sim.setCommandSource(this);
+
+        commands = new int[2 * 16];
+    }
+
+    /**
+     * Plays the whole recording, checking each tick.
+     *
+     * @return true if every tick matched, false if one did not (see
+     *         ticks, actualHash, and expectedHash)
+     * @throws IOException if the recording is cut short in a record
+     */
+    public boolean play () throws IOException
+    {
+        double delta = 0;
+
+        int tag;
+        while ((tag = in.read()) >= 0)
+        {
+            if (tag == InputRecorder.DELTA)
+                delta = in.readDouble();
+
+            else if (tag == InputRecorder.SELECT)
+                queue(-1, -1);
+
+            else if (tag == InputRecorder.PLACE)
+                queue(in.readShort(), in.readShort());
+
+            else if (tag == InputRecorder.TICK)
+            {
+                expectedHash = in.readInt();
+
+                sim.step(delta);
+                ticks++;
+
+                actualHash = sim.stateHash();
+                if (actualHash != expectedHash)
+                    return false;
+            }
+
+            else
+                throw new IOException("Bad record " + tag + " after tick " + ticks);
+        }
+
+        return true;
+    }
+
+    /* (non-Javadoc)
+     * @see game.CommandSource#issueCommands(game.TowerCommands)
+     */
+    @Override
+    public void issueCommands (TowerCommands tc)
+    {
+        for (int k = 0; k < 2 * commandCount; k += 2)
+            if (commands[k] < 0)
+                tc.selectTower();
+            else
+                tc.placeTower(commands[k], commands[k + 1]);
+
+        commandCount = 0;
+    }
+
+    /* Helpers */
+
+    private void queue (int x, int y)
+    {
+        if (2 * commandCount == commands.length)
+            commands = Arrays.copyOf(commands, 2 * commands.length);
+
+        commands[2 * commandCount] = x;
+        commands[2 * commandCount + 1] = y;
+        commandCount++;
+    }
+}
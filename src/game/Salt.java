@@ -4,6 +4,7 @@
 package game;
 
 import java.awt.*;
+import java.nio.ByteBuffer;
 
 /**
  * @author pajensen
@@ -11,77 +12,164 @@ import java.awt.*;
  */
 public class Salt implements Tower
 {
-    protected Coordinate pos;
-    private Image picture;
-    private int anchorX, anchorY;  // A delta to the tower center.
-    private boolean fired;
-    private int timeSinceLastFired;
+    protected int x, y;
+    int number;                    // The position of this tower in the tower list
+    
+    // The seconds between shots.  (It used to be counted in frames,
+    //   about 100 of them at 60 frames a second.)
+    
+    static final double RELOAD_TIME = 100 / 60.0;
+    static final double RANGE = 100;   // How far the tower can throw, in pixels
+    
+    private double[] coverage;     // The parts of the path within range (see PathPoints.getCoverage)
+    private TargetPolicy policy;
+    private int target;            // A handle to the enemy being aimed at, or -1
     
     public Salt (Coordinate pos)
     {
-        this.pos = pos;
-        
-        ImageLoader loader = ImageLoader.getLoader();
-        this.picture = loader.getImage("salt.png");
-        
-        this.anchorX = 25;
-        this.anchorY = 30;
+        this(pos.x, pos.y);
+    }
+    
+    public Salt (int x, int y)
+    {
+        this.x = x;
+        this.y = y;
         
-        fired = false;
-        timeSinceLastFired = 100;
+        coverage = new double[0];
+        policy = TargetPolicy.FIRST;
+        target = -1;
     }
     
     public void draw (Graphics g)
     {
-        // Draw the shape for this enemy.
+        // Draw the shape for this enemy.  (The picture is loaded the first
+        //   time it is drawn, so the simulation never touches the loader.)
         
-        g.drawImage(picture, pos.x - anchorX, pos.y - anchorY, null);
+        Sprite s = getSprite();
+        g.drawImage(s.getPicture(), x - s.anchorX, y - s.anchorY, null);
         
         // Debugging:  Draw a dot at the snail's location.
         
         g.setColor(Color.GREEN);
-        g.fillOval(pos.x - 2, pos.y - 2, 5, 5);
+        g.fillOval(x - 2, y - 2, 5, 5);
     }
 
     /* (non-Javadoc)
      * @see game_checkpoint_3_start.Tower#interact(game_checkpoint_3_start.Game)
      */
     @Override
-    public void interact (Game g)
+    public void interact (GameSimulation g, TickWorker w)
     {
         // If the snail is within a certain distance of the tower
     	// the tower creates a new salt crystal effect and places
-    	// it in the list
-    	
-    	timeSinceLastFired = timeSinceLastFired + 1;
+    	// it in the list.  (The simulation only calls this once the tower
+    	// has reloaded, so there is no need to check.)
     	
-    	for (Enemy s : g.enemies)
+    	// Keep aiming at the same snail while it is alive and in range
+    	int first = g.enemies.resolve(target);
+    	if (first < 0 || !g.enemies.isAlive(first) ||
+    	    !ProgressIndex.covers(coverage, g.enemies.getProgress(first)))
     	{
-	    	// Calculate the distance between the tower and the snail object
-	    	double enemyX = s.getPos().getCoordinate().x;
-	    	double enemyY = s.getPos().getCoordinate().y;
-	    	double distance = Math.sqrt(Math.pow((enemyX - pos.x),2) + Math.pow((enemyY - pos.y), 2));
-	    	
-	  
-		    	if(distance <= 100 && timeSinceLastFired > 100) // Tower is within a certain distance of snail object
-		    	{	
-		    		Coordinate crystalCoordinate = new Coordinate(s.getPos().getCoordinate().x - 100, s.getPos().getCoordinate().y - 100);
-		    		
-		    		// Create a new effect and add it to the list
-		    		Effect crystal = new SaltCrystal (pos, crystalCoordinate);
-		    		g.effects.add(crystal);
-		    		timeSinceLastFired = 0;
-		    		return;
-		    	}
-	    	}
-	    	
+    		// Otherwise choose a new one from the snails in range
+    		first = g.enemyOrder.findTarget(policy, coverage, x, y, g.enemies);
+    		target = first >= 0 ? g.enemies.getHandle(first) : -1;
     	}
     	
+    	if (first < 0)
+    		return;
+    	
+    	int targetX = (int) g.enemies.getX(first) - 100;
+    	int targetY = (int) g.enemies.getY(first) - 100;
+    	
+    	// Ask for a new effect; it is added to the list at the end of the tick
+    	w.commands.spawnCrystal(x, y, targetX, targetY, number);
+    	w.commands.reload(number, RELOAD_TIME);
+    }
+    	
 
    
     public void setPosition (Coordinate c)
     {
-        pos = c;
+        setPosition(c.x, c.y);
+    }
+    
+    public void setPosition (int x, int y)
+    {
+        this.x = x;
+        this.y = y;
+    }
+    
+    /**
+     * Sets the parts of the path this tower can reach.  (The simulation
+     * works this out when the tower is placed.)
+     * 
+     * @param coverage  the intervals, from PathPoints.getCoverage
+     */
+    public void setCoverage (double[] coverage)
+    {
+        this.coverage = coverage;
+    }
+    
+    /**
+     * Sets which enemy within range the tower aims at.
+     * 
+     * @param policy  the target policy
+     */
+    public void setTargetPolicy (TargetPolicy policy)
+    {
+        this.policy = policy;
+    }
+    
+    public TargetPolicy getTargetPolicy ()
+    {
+        return policy;
+    }
+    
+    /**
+     * Writes the tower to a saved game (see SaveGame).  Its coverage is
+     * not written; it is worked out again from the path.
+     * 
+     * @param out  the buffer to write to
+     */
+    void saveState (ByteBuffer out)
+    {
+        out.putInt(x);
+        out.putInt(y);
+        out.putInt(policy.ordinal());
+        out.putInt(target);
+    }
+    
+    /**
+     * Builds a tower from a saved game.
+     * 
+     * @param in      the buffer to read from
+     * @param number  the position of the tower in the tower list
+     * @param path    the path (for the tower's coverage)
+     * @return the tower
+     */
+    static Salt restoreState (ByteBuffer in, int number, PathPoints path)
+    {
+        Salt t = new Salt(in.getInt(), in.getInt());
+        t.number = number;
+        t.policy = TargetPolicy.values()[SaveGame.getIndex(in, TargetPolicy.values().length)];
+        t.target = in.getInt();
+        t.coverage = path.getCoverage(t.x, t.y, RANGE);
+        return t;
+    }
+    
+    public int getX ()
+    {
+        return x;
+    }
+    
+    public int getY ()
+    {
+        return y;
+    }
+    
+    public Sprite getSprite ()
+    {
+        return Sprite.SALT;
     }
 
 }
@@ -1,82 +1,135 @@
 package game;
 
 import java.awt.Graphics;
-import java.awt.Image;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.ByteBuffer;
 /**
  * SaltCrystal effect that is utilized by towers to destroy enemy objects
+ * Crystals are recycled through an EffectPool, so init() resets every field
  * @author Brandon Koch
  *
  */
 public class SaltCrystal implements Effect
 {
-	private Coordinate position, target;
+	private int x, y;
 	private int velocityX, velocityY;
-	private Image picture;
-	private double ageInSeconds;
+	private int previousX, previousY;
+	private int tower;  // The number of the tower that threw this crystal
+	int poolSlot;  // Where this crystal lives in its EffectPool
 	
 	/**
-	 * Constructor for SaltCrystal effect
-	 * @param position
-	 * @param target
+	 * Constructor for SaltCrystal effect (only called by the EffectPool)
 	 */
-	SaltCrystal (Coordinate position, Coordinate target)
+	SaltCrystal ()
 	{
-		velocityX = target.x - position.x;
-		velocityY = target.y - position.y;
+	}
+	
+	/**
+	 * Throws the crystal.  Resets everything left over from an earlier throw
+	 * @param x, y (the starting position)
+	 * @param targetX, targetY (where the crystal is thrown)
+	 * @param tower (the number of the tower throwing it, credited with its kills)
+	 */
+	void init (int x, int y, int targetX, int targetY, int tower)
+	{
+		this.tower = tower;
 		
-		ImageLoader loader = ImageLoader.getLoader();
-        this.picture = loader.getImage("salt_crystals.png");
-        
-        this.position = position;
-        this.target = target;
+		velocityX = targetX - x;
+		velocityY = targetY - y;
+		
+        this.x = x;
+        this.y = y;
         
-        ageInSeconds = 0;
+        previousX = x;
+        previousY = y;
 	}
 	
 	
 	// The interact method in each effect will control the effect motion, 
-	// interact with other game objects, and keep track of the effect duration
+	// interact with other game objects.  (The simulation keeps track of the
+	// effect duration, see getLifetime.)
 	@Override
-	public void interact(Game g, double deltaTime) {
+	public void interact(GameSimulation g, TickWorker w, double deltaTime) {
 		
-		// Move the effect toward the target, while adding the time to its age
+		// Move the effect toward the target
 		
-		ageInSeconds = ageInSeconds + deltaTime;
+		previousX = x;
+		previousY = y;
 		
-		int x = (int) (position.x + velocityX * deltaTime);
-		int y = (int) (position.y + velocityY * deltaTime);
-		position = new Coordinate(x, y);
+		x = (int) (x + velocityX * deltaTime);
+		y = (int) (y + velocityY * deltaTime);
 		
-		// Create a copy of the enemies list
-		List<Enemy> toBeRemoved = new ArrayList<Enemy>(g.enemies);
+		// Find the snail objects within range of the effect
+		int found = w.findEnemies(g.enemyGrid, x, y, 40);
 		
-		// Loop through the enemies list
-		for(Enemy e: toBeRemoved)
+		// Ask for each of them to be killed at the end of the tick.  (If
+		// another crystal gets a snail first, the second kill is ignored,
+		// and only the first one is paid for.)
+		for(int k = 0; k < found; k++)
 		{
-			// Calculate the distance between the effect and the snail object
-	    	double distance = Math.sqrt(Math.pow((e.getPos().getCoordinate().x - position.x),2) + Math.pow((e.getPos().getCoordinate().y - position.y), 2));
-	    	
-	    	if(distance <= 40)
-	    	{	g.enemies.remove(e);
-	    		g.money = g.money + 10;
-	    	}
+			int e = w.getFound(k);
+	    	w.commands.kill(g.enemies.getHandle(e), g.killReward, tower);
 		}
 		
 	
 	}
 	
 	/**
-	 * If the age of the effect is greater than or equal to 1.5 seconds, the effect is done
+	 * The effect is done 1.5 seconds after it is thrown
 	 */
-	public boolean isDone() {
-		return (ageInSeconds >= 1.5);
+	public double getLifetime() {
+		return 1.5;
+	}
+	
+	/**
+	 * Writes the crystal to a saved game (see SaveGame)
+	 * @param ByteBuffer out
+	 */
+	void saveState(ByteBuffer out) {
+		out.putInt(x).putInt(y);
+		out.putInt(velocityX).putInt(velocityY);
+		out.putInt(previousX).putInt(previousY);
+		out.putInt(tower);
+	}
+	
+	/**
+	 * Reads the crystal back from a saved game
+	 * @param ByteBuffer in
+	 */
+	void restoreState(ByteBuffer in) {
+		x = in.getInt();
+		y = in.getInt();
+		velocityX = in.getInt();
+		velocityY = in.getInt();
+		previousX = in.getInt();
+		previousY = in.getInt();
+		tower = in.getInt();
+	}
+	
+	public int getX() {
+		return x;
+	}
+	
+	public int getY() {
+		return y;
+	}
+	
+	public int getPreviousX() {
+		return previousX;
+	}
+	
+	public int getPreviousY() {
+		return previousY;
+	}
+	
+	public Sprite getSprite() {
+		return Sprite.SALT_CRYSTALS;
 	}
 	
 	@Override
-	public void draw(Graphics g) {
-		g.drawImage(picture, position.x, position.y, null);
+	public void draw(Graphics g, double alpha) {
+		int drawX = (int) (previousX + (x - previousX) * alpha);
+		int drawY = (int) (previousY + (y - previousY) * alpha);
+		g.drawImage(getSprite().getPicture(), drawX, drawY, null);
 	}
 	
 }
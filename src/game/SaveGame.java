@@ -0,0 +1,315 @@
+/**
+ * 
+ */
+package game;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+
+/**
+ * Saves the whole state of a game to a file, and restores it, so a
+ * game can be autosaved as it is played and picked up again after a
+ * crash.  The state is everything that affects what happens next:  the
+ * score, the clocks, the position in the waves, every enemy (including
+ * its handle slot, so handles held by towers still work), every tower
+ * (its target, and whether it is reloading), every effect, and the
+ * timers of the reloads and effects.  A restored game plays out exactly
+ * like the original would have.
+ *
+ * A snapshot is captured into a ByteBuffer between ticks, which is
+ * nothing more than a few bulk array copies, and only then written to
+ * a file (so the writing can happen on another thread, see Autosave).
+ * Files are written under another name, flushed to the disk, then
+ * moved into place, so a crash never leaves half a snapshot behind.
+ *
+ * The snapshot is little-endian and starts with:
+ *
+ *   int    MAGIC
+ *   int    VERSION
+ *   int    the number of bytes that follow
+ *   int    the number of points on the path, and
+ *   double its length (to check that it is restored onto the same path)
+ *
+ * after which each part of the game writes its own section (see
+ * GameSimulation.saveState).  Arrays are written as their length,
+ * then their entries.
+ */
+public class SaveGame
+{
+    /* Static fields and methods */
+
+    static final int MAGIC = 0x54445347;   // "TDSG"
+    static final int VERSION = 2;
+    static final int HEADER = 12;          // Bytes before the length count starts
+
+    /**
+     * Captures the state of a game.
+     *
+     * @param sim     the simulation, between ticks
+     * @param buffer  a buffer to reuse, or null
+     * @return the snapshot, ready to read (the buffer, or a bigger one
+     *         if it was too small)
+     */
+    public static ByteBuffer capture (GameSimulation sim, ByteBuffer buffer)
+    {
+        if (buffer == null)
+            buffer = ByteBuffer.allocateDirect(1 << 16);
+
+        while (true)
+        {
+            try
+            {
+                buffer.clear();
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                buffer.putInt(MAGIC);
+                buffer.putInt(VERSION);
+                buffer.putInt(0);        // (Filled in below)
+
+                sim.saveState(buffer);
+
+                buffer.putInt(8, buffer.position() - HEADER);
+                buffer.flip();
+                return buffer;
+            }
+            catch (BufferOverflowException e)
+            {
+                buffer = ByteBuffer.allocateDirect(2 * buffer.capacity());
+            }
+        }
+    }
+
+    /**
+     * Restores a game from a snapshot.  The simulation must be a new one,
+     * built on the same path, with the same waves set (they are moved on
+     * to the saved wave time).
+     *
+     * @param snapshot  the snapshot, from capture() or read()
+     * @param sim       the simulation to restore into
+     * @throws IllegalArgumentException if the snapshot is not one, is
+     *         from another version, is for another path, or is damaged
+     *         (the simulation is then half restored, and must be thrown
+     *         away)
+     */
+    public static void restore (ByteBuffer snapshot, GameSimulation sim)
+    {
+        ByteBuffer in = snapshot.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+
+        if (in.remaining() < HEADER || in.getInt() != MAGIC)
+            throw new IllegalArgumentException("Not a saved game");
+        if (in.getInt() != VERSION)
+            throw new IllegalArgumentException("A saved game from another version");
+        if (in.getInt() != in.remaining())
+            throw new IllegalArgumentException("A saved game that was cut short");
+
+        try
+        {
+            sim.restoreState(in);
+        }
+        catch (BufferUnderflowException | IndexOutOfBoundsException e)
+        {
+            throw new IllegalArgumentException("A damaged saved game");
+        }
+    }
+
+    /**
+     * Saves a game to a file.
+     *
+     * @param sim   the simulation, between ticks
+     * @param file  the file
+     * @throws IOException if the file cannot be written
+     */
+    public static void save (GameSimulation sim, File file) throws IOException
+    {
+        write(capture(sim, null), file);
+    }
+
+    /**
+     * Restores a game from a file.
+     *
+     * @param file  the file
+     * @param sim   a new simulation (see restore)
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if it is not a saved game for
+     *         this path
+     */
+    public static void load (File file, GameSimulation sim) throws IOException
+    {
+        restore(read(file), sim);
+    }
+
+    /**
+     * Writes a snapshot to a file, replacing it all at once.
+     *
+     * @param snapshot  the snapshot (its position is not changed)
+     * @param file      the file
+     * @throws IOException if the file cannot be written
+     */
+    public static void write (ByteBuffer snapshot, File file) throws IOException
+    {
+        File directory = file.getAbsoluteFile().getParentFile();
+        File temp = File.createTempFile(file.getName(), ".tmp", directory);
+        try
+        {
+            RandomAccessFile raf = new RandomAccessFile(temp, "rw");
+            try
+            {
+                // (Written, not mapped:  a mapped file stays open until the
+                //   garbage collector unmaps it, and on Windows it could
+                //   then not be moved into place.)
+
+                FileChannel channel = raf.getChannel();
+                ByteBuffer data = snapshot.duplicate();
+                while (data.hasRemaining())
+                    channel.write(data);
+
+                // Make sure it is on the disk before it takes the place
+                //   of the last one.
+
+                channel.force(true);
+            }
+            finally
+            {
+                raf.close();
+            }
+
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally
+        {
+            temp.delete();   // (Already gone if it was moved.)
+        }
+    }
+
+    /**
+     * Reads a snapshot file into memory.  (It is read, not mapped:  a
+     * mapped file stays open until the garbage collector gets around to
+     * unmapping it, and on Windows an open file cannot be replaced or
+     * deleted, so the next autosave would fail.)
+     *
+     * @param file  the file
+     * @return the snapshot
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if it is too big to be a saved game
+     */
+    public static ByteBuffer read (File file) throws IOException
+    {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try
+        {
+            FileChannel channel = raf.getChannel();
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("Not a saved game");
+
+            ByteBuffer snapshot = ByteBuffer.allocate((int) size);
+            while (snapshot.hasRemaining() && channel.read(snapshot) >= 0)
+                ;
+            snapshot.flip();
+            return snapshot;
+        }
+        finally
+        {
+            raf.close();
+        }
+    }
+
+    /* Array helpers, used by each part of the game for its section.  The
+     *   readers fill in an array that the caller has made big enough (from
+     *   the counts it saved), and return the number of entries read.
+     *   getIndex reads a number that must be below a limit (an ordinal, or
+     *   a position in an array). */
+
+    static void putInts (ByteBuffer out, int[] values, int count)
+    {
+        out.putInt(count);
+        out.asIntBuffer().put(values, 0, count);
+        out.position(out.position() + 4 * count);
+    }
+
+    static int getInts (ByteBuffer in, int[] values)
+    {
+        int count = checkCount(in, values.length);
+        in.asIntBuffer().get(values, 0, count);
+        in.position(in.position() + 4 * count);
+        return count;
+    }
+
+    static void putDoubles (ByteBuffer out, double[] values, int count)
+    {
+        out.putInt(count);
+        out.asDoubleBuffer().put(values, 0, count);
+        out.position(out.position() + 8 * count);
+    }
+
+    static int getDoubles (ByteBuffer in, double[] values)
+    {
+        int count = checkCount(in, values.length);
+        in.asDoubleBuffer().get(values, 0, count);
+        in.position(in.position() + 8 * count);
+        return count;
+    }
+
+    static void putBytes (ByteBuffer out, byte[] values, int count)
+    {
+        out.putInt(count);
+        out.put(values, 0, count);
+    }
+
+    static int getBytes (ByteBuffer in, byte[] values)
+    {
+        int count = checkCount(in, values.length);
+        in.get(values, 0, count);
+        return count;
+    }
+
+    static void putBooleans (ByteBuffer out, boolean[] values, int count)
+    {
+        out.putInt(count);
+        for (int i = 0; i < count; i++)
+            out.put(values[i] ? (byte) 1 : 0);
+    }
+
+    static int getBooleans (ByteBuffer in, boolean[] values)
+    {
+        int count = checkCount(in, values.length);
+        for (int i = 0; i < count; i++)
+            values[i] = in.get() != 0;
+        return count;
+    }
+
+    static int getIndex (ByteBuffer in, int limit)
+    {
+        int index = in.getInt();
+        if (index < 0 || index >= limit)
+            throw new IllegalArgumentException("A damaged saved game");
+
+        return index;
+    }
+
+    static int peekCount (ByteBuffer in)
+    {
+        // (Each entry takes at least a byte, so a count bigger than what
+        //   is left is damage, and must not be used to size an array.)
+
+        if (in.remaining() < 4)
+            throw new BufferUnderflowException();
+
+        int count = in.getInt(in.position());
+        if (count < 0 || count > in.remaining() - 4)
+            throw new IllegalArgumentException("A damaged saved game");
+
+        return count;
+    }
+
+    private static int checkCount (ByteBuffer in, int room)
+    {
+        int count = in.getInt();
+        if (count < 0 || count > room)
+            throw new IllegalArgumentException("A damaged saved game");
+
+        return count;
+    }
+}
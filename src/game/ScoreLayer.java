@@ -0,0 +1,88 @@
+/**
+ * 
+ */
+package game;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * The score text in the menu panel (lives, money, and "Paused").  The
+ * text is drawn into a small see-through image, and only drawn again
+ * when the lives, the money, or the pause change.  Each frame just
+ * copies the image.
+ */
+public class ScoreLayer
+{
+    /* Static fields and methods */
+
+    static final int X = 600, Y = 60;              // Where the layer goes on the screen
+    static final int WIDTH = 200, HEIGHT = 140;
+
+    private static final Font SCORE_FONT = new Font("Lucidia Sans", Font.BOLD, 24);
+
+    /* Object fields and methods */
+
+    private BufferedImage layer;
+    private GraphicsConfiguration drawnFor;
+    private int shownLives, shownMoney;   // The score when the layer was drawn
+    private boolean shownPaused;
+
+    /**
+     * Draws the score, redrawing the layer first if the score changed.
+     *
+     * @param g       the graphics to draw on
+     * @param gc      the screen being drawn on (or null if not known yet)
+     * @param lives   the lives left
+     * @param money   the money
+     * @param paused  true if the game is paused
+     */
+    public void draw (Graphics g, GraphicsConfiguration gc, int lives, int money, boolean paused)
+    {
+        if (layer == null || gc != drawnFor)
+        {
+            layer = gc != null ? gc.createCompatibleImage(WIDTH, HEIGHT, Transparency.TRANSLUCENT)
+                               : new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+            drawnFor = gc;
+            render(lives, money, paused);
+        }
+        else if (lives != shownLives || money != shownMoney || paused != shownPaused)
+            render(lives, money, paused);
+
+        g.drawImage(layer, X, Y, null);
+    }
+
+    /* Helpers */
+
+    private void render (int lives, int money, boolean paused)
+    {
+        Graphics2D g = layer.createGraphics();
+        try
+        {
+            // Clear the old text.
+
+            g.setComposite(AlphaComposite.Clear);
+            g.fillRect(0, 0, WIDTH, HEIGHT);
+            g.setComposite(AlphaComposite.SrcOver);
+
+            // Draw the score.  (The positions are screen positions, moved
+            //   into the layer.)
+
+            g.setColor(Color.BLACK);
+            g.setFont(SCORE_FONT);
+            g.drawString("Lives: " + lives, 620 - X, 100 - Y);
+            g.drawString("Money: " + money, 620 - X, 130 - Y);
+
+            if (paused)
+                g.drawString("Paused", 620 - X, 190 - Y);
+        }
+        finally
+        {
+            g.dispose();
+        }
+
+        shownLives = lives;
+        shownMoney = money;
+        shownPaused = paused;
+    }
+}
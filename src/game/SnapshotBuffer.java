@@ -0,0 +1,79 @@
+/**
+ * 
+ */
+package game;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A triple buffer of render snapshots, passed from the game thread
+ * (which fills them) to the renderer (which draws them) without
+ * either thread ever waiting for the other.
+ *
+ * One snapshot is being filled by the game thread (the back), one is
+ * being drawn by the renderer (the front), and the third is the newest
+ * finished one (ready).  publish() swaps the back with ready, and
+ * getLatest() swaps ready with the front if ready holds something the
+ * renderer has not seen yet.  Each swap is a single atomic exchange.
+ * If the game thread publishes faster than the renderer draws, the
+ * snapshots it skips are simply filled again.
+ *
+ * Only one thread may fill snapshots, and only one may draw them.
+ */
+public class SnapshotBuffer
+{
+    /* Static fields and methods */
+
+    private static final int INDEX = 3;   // The bits that hold a snapshot number
+    private static final int FRESH = 4;   // Set when ready has not been drawn yet
+
+    /* Object fields and methods */
+
+    private final RenderSnapshot[] snapshots;
+    private final AtomicInteger ready;   // The ready snapshot, and FRESH
+    private int back, front;
+
+    /**
+     * Builds the buffer with three empty snapshots.
+     */
+    public SnapshotBuffer ()
+    {
+        snapshots = new RenderSnapshot[] { new RenderSnapshot(), new RenderSnapshot(), new RenderSnapshot() };
+        back = 0;
+        front = 1;
+        ready = new AtomicInteger(2);
+    }
+
+    /**
+     * Returns the snapshot for the game thread to fill.  (Game thread only.)
+     *
+     * @return the back snapshot
+     */
+    public RenderSnapshot getBack ()
+    {
+        return snapshots[back];
+    }
+
+    /**
+     * Hands the back snapshot to the renderer, and takes another one
+     * to fill next time.  (Game thread only.)
+     */
+    public void publish ()
+    {
+        back = ready.getAndSet(back | FRESH) & INDEX;
+    }
+
+    /**
+     * Returns the newest published snapshot.  It stays untouched until
+     * the next call.  (Renderer only.)
+     *
+     * @return the snapshot to draw
+     */
+    public RenderSnapshot getLatest ()
+    {
+        if ((ready.get() & FRESH) != 0)
+            front = ready.getAndSet(front) & INDEX;
+
+        return snapshots[front];
+    }
+}
@@ -0,0 +1,201 @@
+/**
+ * 
+ */
+package game;
+
+/**
+ * A uniform grid over the play field that answers "which enemies are
+ * within this radius?" without looking at every enemy.  The grid is
+ * rebuilt once per tick (a counting sort of the enemies into cells),
+ * then any number of radius queries can be made against it.
+ *
+ * Enemies outside the field (the path starts off screen) are kept in
+ * the nearest border cell, so queries never miss them.
+ */
+public class SpatialGrid
+{
+    private int cellSize;
+    private int columns, rows;
+
+    private int[] cellStart;   // Index into cellItems of the first item in each cell (plus one extra end marker)
+    private int[] cellItems;   // Item numbers, grouped by cell
+    private int[] itemCell;    // The cell of each item
+    private double[] itemX, itemY;
+    private int itemCount;
+
+    private int[] results;     // Item numbers found by the last query
+    private int resultCount;
+
+    /**
+     * Builds an empty grid covering a field of the given size.
+     *
+     * @param width     the width of the field, in pixels
+     * @param height    the height of the field, in pixels
+     * @param cellSize  the width and height of one cell, in pixels
+     */
+    public SpatialGrid (int width, int height, int cellSize)
+    {
+        this.cellSize = cellSize;
+        this.columns = (width + cellSize - 1) / cellSize;
+        this.rows = (height + cellSize - 1) / cellSize;
+
+        cellStart = new int[columns * rows + 1];
+        ensureCapacity(64);
+    }
+
+    /**
+     * Re-sorts the living enemies into the grid.  The position of each
+     * enemy is copied once, here, and reused by every query this tick.
+     * Query results are enemy numbers in the store.
+     *
+     * @param enemies  the enemies currently in the game
+     */
+    public void rebuild (EnemyStore enemies)
+    {
+        itemCount = enemies.size();
+        ensureCapacity(itemCount);
+
+        java.util.Arrays.fill(cellStart, 0);
+
+        // Find each enemy's cell, and count the enemies in each cell.
+        //   (Killed enemies are put in no cell at all.)
+
+        for (int i = 0; i < itemCount; i++)
+        {
+            itemX[i] = enemies.getX(i);
+            itemY[i] = enemies.getY(i);
+
+            if (enemies.isAlive(i))
+            {
+                itemCell[i] = cellOf(itemX[i], itemY[i]);
+                cellStart[itemCell[i] + 1]++;
+            }
+            else
+                itemCell[i] = -1;
+        }
+
+        // Turn the counts into starting positions, then drop each
+        //   enemy into its cell's range.  (Item order is kept within
+        //   a cell.)
+
+        for (int i = 0; i < columns * rows; i++)
+            cellStart[i + 1] += cellStart[i];
+
+        int[] next = results;  // Borrowed as scratch space; it is large enough
+        System.arraycopy(cellStart, 0, next, 0, columns * rows);
+
+        for (int i = 0; i < itemCount; i++)
+            if (itemCell[i] >= 0)
+                cellItems[next[itemCell[i]]++] = i;
+
+        resultCount = 0;
+    }
+
+    /**
+     * Finds every enemy within the given distance of a point.  The
+     * results are available through getResult() until the next query.
+     *
+     * @param x       the x location of the center of the search
+     * @param y       the y location of the center of the search
+     * @param radius  the search distance, in pixels
+     * @return the number of enemies found
+     */
+    public int query (double x, double y, double radius)
+    {
+        resultCount = query(x, y, radius, results);
+        return resultCount;
+    }
+
+    /**
+     * Finds every enemy within the given distance of a point, and puts
+     * their numbers in the caller's array.  This does not touch the
+     * grid, so any number of threads may call it at once (each with its
+     * own array) between rebuilds.
+     *
+     * @param x        the x location of the center of the search
+     * @param y        the y location of the center of the search
+     * @param radius   the search distance, in pixels
+     * @param results  where to put the enemy numbers; it must hold at
+     *                 least getItemCount() numbers
+     * @return the number of enemies found
+     */
+    public int query (double x, double y, double radius, int[] results)
+    {
+        int minColumn = clamp((int) Math.floor((x - radius) / cellSize), columns);
+        int maxColumn = clamp((int) Math.floor((x + radius) / cellSize), columns);
+        int minRow = clamp((int) Math.floor((y - radius) / cellSize), rows);
+        int maxRow = clamp((int) Math.floor((y + radius) / cellSize), rows);
+
+        double radiusSquared = radius * radius;
+        int resultCount = 0;
+
+        for (int row = minRow; row <= maxRow; row++)
+            for (int column = minColumn; column <= maxColumn; column++)
+            {
+                int cell = row * columns + column;
+
+                for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++)
+                {
+                    int i = cellItems[k];
+                    double dx = itemX[i] - x;
+                    double dy = itemY[i] - y;
+
+                    if (dx * dx + dy * dy <= radiusSquared)
+                        results[resultCount++] = i;
+                }
+            }
+
+        return resultCount;
+    }
+
+    /**
+     * Returns the number of enemies sorted into the grid by the last
+     * rebuild (including killed ones, which are in no cell).
+     *
+     * @return the number of enemies
+     */
+    public int getItemCount ()
+    {
+        return itemCount;
+    }
+
+    /**
+     * Returns one of the enemies found by the last query.
+     *
+     * @param k  which result (0 to the count returned by query - 1)
+     * @return the enemy number in the store
+     */
+    public int getResult (int k)
+    {
+        return results[k];
+    }
+
+    /* Helpers */
+
+    private int cellOf (double x, double y)
+    {
+        int column = clamp((int) Math.floor(x / cellSize), columns);
+        int row = clamp((int) Math.floor(y / cellSize), rows);
+
+        return row * columns + column;
+    }
+
+    private static int clamp (int value, int count)
+    {
+        return value < 0 ? 0 : (value >= count ? count - 1 : value);
+    }
+
+    private void ensureCapacity (int count)
+    {
+        if (itemX != null && itemX.length >= count && results.length >= columns * rows)
+            return;
+
+        int size = Math.max(Math.max(count, columns * rows), itemX == null ? 0 : itemX.length * 2);
+
+        itemX = new double[size];
+        itemY = new double[size];
+        itemCell = new int[size];
+        cellItems = new int[size];
+        results = new int[size];
+    }
+}
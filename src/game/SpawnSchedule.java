@@ -0,0 +1,23 @@
+/**
+ * 
+ */
+package game;
+
+/**
+ * When each enemy enters the game.  The simulation keeps the time
+ * since the waves began, and asks the schedule each tick for every
+ * enemy that has come due.
+ */
+public interface SpawnSchedule
+{
+    /**
+     * Asks for every enemy due at or before the given time that has not
+     * been asked for yet, in time order.  An enemy that was due earlier
+     * than the time is given a head start, so a long tick (a dropped
+     * frame, or fast-forward) does not bunch enemies up.
+     *
+     * @param time      the time since the waves began, in seconds
+     * @param commands  the buffer to add the new enemies to
+     */
+    public void spawnDue (double time, CommandBuffer commands);
+}
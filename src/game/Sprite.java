@@ -0,0 +1,54 @@
+/**
+ * 
+ */
+package game;
+
+import java.awt.Image;
+
+/**
+ * The pictures that game objects are drawn with.  A render snapshot
+ * only records which sprite each object uses (its ordinal), so the
+ * renderer can draw a frame without touching the game objects.
+ */
+public enum Sprite
+{
+    SNAIL         ("snail.png",         22, 19),
+    SCARGO        ("s-cargo.png",       22, 19),
+    SALT          ("salt.png",          25, 30),
+    SALT_CRYSTALS ("salt_crystals.png",  0,  0),
+
+    // These are not used in the game yet.  (They are anchored at their centers.)
+
+    BEER          ("beer.png",          18, 32),
+    CRASH         ("crash.png",         35, 27),
+    PUDDLE        ("puddle.png",       130, 97),
+    SPLAT         ("splat.png",         30, 32);
+
+    static final Sprite[] ALL = values();
+
+    final String imageName;
+    final int anchorX, anchorY;   // A delta to the object's center
+
+    private volatile Image picture;   // Set by whichever thread draws it first
+
+    Sprite (String imageName, int anchorX, int anchorY)
+    {
+        this.imageName = imageName;
+        this.anchorX = anchorX;
+        this.anchorY = anchorY;
+    }
+
+    /**
+     * Returns the picture.  The picture is only loaded the first time
+     * it is drawn, so the simulation never touches the image loader.
+     *
+     * @return the picture
+     */
+    Image getPicture ()
+    {
+        if (picture == null)
+            picture = ImageLoader.getLoader().getImage(imageName);
+
+        return picture;
+    }
+}
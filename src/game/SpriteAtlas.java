@@ -0,0 +1,147 @@
+/**
+ * 
+ */
+package game;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Every sprite packed into one image.  Drawing all of the sprites from
+ * a single image lets Java2D keep one texture (and one format) for all
+ * of them, instead of switching between many small images.  Each
+ * sprite's region is looked up by its ordinal.
+ *
+ * The sprites are packed onto shelves:  tallest first, left to right,
+ * starting a new shelf when a row is full.  A pixel of clear space is
+ * left around each one, so neighbours never bleed into each other.
+ */
+public class SpriteAtlas
+{
+    /* Static fields and methods */
+
+    static final int WIDTH = 512;   // The width of the atlas
+    static final int PADDING = 1;
+
+    /* Object fields and methods */
+
+    private BufferedImage atlas;
+    private int[] regionX, regionY, regionWidth, regionHeight;   // By sprite ordinal
+
+    /**
+     * Packs every sprite into an atlas in the given screen's format.
+     *
+     * @param gc  the screen the atlas is drawn on, or null for the
+     *            default format (see ImageLoader.toCompatible)
+     */
+    public SpriteAtlas (GraphicsConfiguration gc)
+    {
+        final Sprite[] sprites = Sprite.ALL;
+        int n = sprites.length;
+
+        regionX = new int[n];
+        regionY = new int[n];
+        regionWidth = new int[n];
+        regionHeight = new int[n];
+
+        Image[] pictures = new Image[n];
+        for (int i = 0; i < n; i++)
+        {
+            pictures[i] = sprites[i].getPicture();
+            regionWidth[i] = pictures[i].getWidth(null);
+            regionHeight[i] = pictures[i].getHeight(null);
+        }
+
+        // Place them, tallest first.
+
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++)
+            order[i] = i;
+
+        Arrays.sort(order, new Comparator<Integer>()
+        {
+            public int compare (Integer a, Integer b)
+            {
+                return regionHeight[b] - regionHeight[a];
+            }
+        });
+
+        int x = PADDING, y = PADDING, shelfHeight = 0;
+        for (int k = 0; k < n; k++)
+        {
+            int i = order[k];
+            if (x + regionWidth[i] + PADDING > WIDTH)
+            {
+                x = PADDING;
+                y += shelfHeight + PADDING;
+                shelfHeight = 0;
+            }
+
+            regionX[i] = x;
+            regionY[i] = y;
+            x += regionWidth[i] + PADDING;
+            shelfHeight = Math.max(shelfHeight, regionHeight[i]);
+        }
+
+        int height = y + shelfHeight + PADDING;
+
+        // Copy the pictures in.
+
+        atlas = gc != null ? gc.createCompatibleImage(WIDTH, height, Transparency.TRANSLUCENT)
+                           : new BufferedImage(WIDTH, height, BufferedImage.TYPE_INT_ARGB);
+
+        Graphics2D g = atlas.createGraphics();
+        try
+        {
+            g.setComposite(AlphaComposite.Src);
+            for (int i = 0; i < n; i++)
+                g.drawImage(pictures[i], regionX[i], regionY[i], null);
+        }
+        finally
+        {
+            g.dispose();
+        }
+    }
+
+    /**
+     * Draws a sprite with its anchor at a location.
+     *
+     * @param g       the graphics to draw on
+     * @param sprite  the sprite
+     * @param x       the x location
+     * @param y       the y location
+     */
+    public void draw (Graphics g, Sprite sprite, int x, int y)
+    {
+        int i = sprite.ordinal();
+        int left = x - sprite.anchorX, top = y - sprite.anchorY;
+        int sx = regionX[i], sy = regionY[i];
+
+        g.drawImage(atlas, left, top, left + regionWidth[i], top + regionHeight[i],
+                    sx, sy, sx + regionWidth[i], sy + regionHeight[i], null);
+    }
+
+    /**
+     * Returns where a sprite is in the atlas.
+     *
+     * @param sprite  the sprite
+     * @return its region
+     */
+    public Rectangle getRegion (Sprite sprite)
+    {
+        int i = sprite.ordinal();
+        return new Rectangle(regionX[i], regionY[i], regionWidth[i], regionHeight[i]);
+    }
+
+    /**
+     * Returns the atlas image.
+     *
+     * @return the image holding every sprite
+     */
+    public Image getImage ()
+    {
+        return atlas;
+    }
+}
@@ -0,0 +1,136 @@
+/**
+ * 
+ */
+package game;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * The parts of the screen that never move:  the backdrop, the path
+ * line, and the menu panel with its tower button.  They are drawn once
+ * into an image, and each frame just copies that image to the screen.
+ *
+ * The image is drawn again only if the map changes (see setMap), the
+ * screen it is drawn for changes, or invalidate() is called after a
+ * change to the layout.
+ */
+public class StaticLayer
+{
+    /* Static fields and methods */
+
+    static final int WIDTH = 800, HEIGHT = 600;   // The whole panel
+    static final int FIELD_WIDTH = 600;           // The map; the menu is to its right
+
+    private static final Color MENU_BUTTON_COLOR = new Color(1f, 1f, 0.8f);
+
+    /* Object fields and methods */
+
+    private Image backdrop;
+    private PathPoints path;
+    private Salt menuSalt;
+
+    private BufferedImage layer;
+    private GraphicsConfiguration drawnFor;   // The screen the layer matches
+    private boolean isValid;
+
+    /**
+     * Builds the layer for a map.  Nothing is drawn until it is used.
+     *
+     * @param backdrop  the map image
+     * @param path      the path
+     * @param menuSalt  the tower drawn on the menu button
+     */
+    public StaticLayer (Image backdrop, PathPoints path, Salt menuSalt)
+    {
+        this.menuSalt = menuSalt;
+        setMap(backdrop, path);
+    }
+
+    /**
+     * Changes the map shown by the layer.
+     *
+     * @param backdrop  the map image
+     * @param path      the path
+     */
+    public void setMap (Image backdrop, PathPoints path)
+    {
+        this.backdrop = backdrop;
+        this.path = path;
+        invalidate();
+    }
+
+    /**
+     * Forces the layer to be drawn again the next time it is used.
+     */
+    public void invalidate ()
+    {
+        isValid = false;
+    }
+
+    /**
+     * Draws the whole layer:  the map and the menu panel.
+     *
+     * @param g   the graphics to draw on
+     * @param gc  the screen being drawn on (or null if not known yet)
+     */
+    public void draw (Graphics g, GraphicsConfiguration gc)
+    {
+        g.drawImage(getLayer(gc), 0, 0, null);
+    }
+
+    /**
+     * Draws just the menu panel, over anything that wandered into it
+     * (enemies walk off the right edge of the map).
+     *
+     * @param g   the graphics to draw on
+     * @param gc  the screen being drawn on (or null if not known yet)
+     */
+    public void drawMenu (Graphics g, GraphicsConfiguration gc)
+    {
+        g.drawImage(getLayer(gc), FIELD_WIDTH, 0, WIDTH, HEIGHT, FIELD_WIDTH, 0, WIDTH, HEIGHT, null);
+    }
+
+    /* Helpers */
+
+    private Image getLayer (GraphicsConfiguration gc)
+    {
+        if (isValid && gc == drawnFor)
+            return layer;
+
+        // Build an image in the screen's own pixel format, so copying it
+        //   to the screen is a plain copy.
+
+        if (layer == null || gc != drawnFor)
+            layer = gc != null ? gc.createCompatibleImage(WIDTH, HEIGHT)
+                               : new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+
+        Graphics g = layer.createGraphics();
+        try
+        {
+            // The backdrop image and the garden path line.
+
+            g.drawImage(backdrop, 0, 0, null);
+            path.drawPath(g);
+
+            // The menu area on the right, with a salt shaker button.
+
+            g.setColor(Color.WHITE);
+            g.fillRect(FIELD_WIDTH, 0, WIDTH - FIELD_WIDTH, HEIGHT);
+
+            g.setColor(MENU_BUTTON_COLOR);
+            g.fillRect(660, 260, 80, 80);
+
+            menuSalt.draw(g);
+        }
+        finally
+        {
+            g.dispose();
+        }
+
+        drawnFor = gc;
+        isValid = true;
+
+        return layer;
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * 
+ */
+package game;
+
+import java.awt.*;
+
+/**
+ * The timing overlay (toggled with F3):  the median, 99th percentile,
+ * and worst time of each tick phase and of drawing a frame, over the
+ * last full window of PhaseTimers, and how many things are in the
+ * game.  The text is built in one reused buffer and drawn with
+ * drawChars, so showing the overlay makes no garbage.
+ *
+ * The histograms are written by other threads while we read them.  A
+ * line may now and then mix two windows, which does not matter for a
+ * number that is only looked at.
+ */
+public class StatsOverlay
+{
+    /* Static fields and methods */
+
+    static final int X = 10, Y = 10;               // Where the panel goes on the screen
+    static final int WIDTH = 330, LINE_HEIGHT = 14;
+
+    private static final Font STATS_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+    private static final Color BACKGROUND_COLOR = new Color(0f, 0f, 0f, 0.6f);
+    private static final Color TEXT_COLOR = new Color(0.8f, 1f, 0.8f);
+
+    /* Object fields and methods */
+
+    private StringBuilder text = new StringBuilder(64);
+    private char[] chars = new char[64];
+
+    /**
+     * Draws the overlay.
+     *
+     * @param g            the graphics to draw on
+     * @param tickTimers   the timers of the simulation's tick
+     * @param drawTimers   the timers of drawing a frame
+     * @param s            the snapshot being drawn (for the counts)
+     */
+    public void draw (Graphics g, PhaseTimers tickTimers, PhaseTimers drawTimers, RenderSnapshot s)
+    {
+        int lines = 2 + tickTimers.getPhaseCount() + drawTimers.getPhaseCount();
+
+        g.setColor(BACKGROUND_COLOR);
+        g.fillRect(X, Y, WIDTH, lines * LINE_HEIGHT + 8);
+        g.setColor(TEXT_COLOR);
+        g.setFont(STATS_FONT);
+
+        int y = Y + LINE_HEIGHT;
+
+        text.setLength(0);
+        text.append("phase         p50 us  p99 us  max us");
+        y = drawLine(g, y);
+
+        for (int p = 0; p < tickTimers.getPhaseCount(); p++)
+            y = drawTimes(g, y, tickTimers.getName(p), tickTimers.getHistogram(p));
+        for (int p = 0; p < drawTimers.getPhaseCount(); p++)
+            y = drawTimes(g, y, drawTimers.getName(p), drawTimers.getHistogram(p));
+
+        text.setLength(0);
+        text.append("enemies ").append(s.enemyCount)
+            .append("  towers ").append(s.towerCount).append(" (").append(s.readyTowerCount).append(" ready)")
+            .append("  effects ").append(s.effectCount);
+        drawLine(g, y);
+    }
+
+    /* Helpers */
+
+    private int drawTimes (Graphics g, int y, String name, LatencyHistogram h)
+    {
+        text.setLength(0);
+        text.append(name);
+        pad(12);
+        appendMicros(h.getPercentile(0.5), 8);
+        appendMicros(h.getPercentile(0.99), 8);
+        appendMicros(h.getMax(), 8);
+        return drawLine(g, y);
+    }
+
+    /**
+     * Adds a time in microseconds (with one decimal), right-aligned in
+     * a column of the given width.
+     */
+    private void appendMicros (long nanos, int width)
+    {
+        long tenths = (nanos + 50) / 100;
+        int end = text.length() + width;
+
+        // Work out the length first, so the padding goes in front.
+
+        int digits = 1;
+        for (long t = tenths / 10; t >= 10; t /= 10)
+            digits++;
+        pad(end - digits - 2);
+
+        text.append(tenths / 10).append('.').append((char) ('0' + tenths % 10));
+    }
+
+    private void pad (int length)
+    {
+        while (text.length() < length)
+            text.append(' ');
+    }
+
+    private int drawLine (Graphics g, int y)
+    {
+        int length = text.length();
+        if (length > chars.length)
+            chars = new char[2 * length];
+
+        text.getChars(0, length, chars, 0);
+        g.drawChars(chars, 0, length, X + 6, y);
+        return y + LINE_HEIGHT;
+    }
+}
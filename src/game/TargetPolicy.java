@@ -0,0 +1,16 @@
+/**
+ * 
+ */
+package game;
+
+/**
+ * Which enemy a tower aims at, out of the enemies within its reach.
+ * Whatever the policy, a tower keeps aiming at the same enemy until it
+ * dies or leaves the tower's reach.
+ */
+public enum TargetPolicy
+{
+    FIRST,      // The enemy furthest along the path (closest to the end)
+    LAST,       // The enemy least far along the path
+    CLOSEST;    // The enemy nearest the tower
+}
@@ -0,0 +1,57 @@
+/**
+ * 
+ */
+package game;
+
+/**
+ * The scratch space that towers and effects use while they run:  a
+ * command buffer to record the changes they want, and an array for
+ * the enemies found by grid queries.  The serial tick has one worker,
+ * whose buffer is the simulation's own.  The parallel tick gives each
+ * piece of work its own worker, so no two threads ever share one.
+ */
+public class TickWorker
+{
+    final CommandBuffer commands;
+    private int[] found;
+
+    /**
+     * Builds a worker that records its changes in the given buffer.
+     *
+     * @param commands  the command buffer
+     */
+    public TickWorker (CommandBuffer commands)
+    {
+        this.commands = commands;
+        this.found = new int[64];
+    }
+
+    /**
+     * Finds every enemy within the given distance of a point.  The
+     * results are available through getFound() until the next call.
+     *
+     * @param grid    the enemy grid (rebuilt this tick)
+     * @param x       the x location of the center of the search
+     * @param y       the y location of the center of the search
+     * @param radius  the search distance, in pixels
+     * @return the number of enemies found
+     */
+    public int findEnemies (SpatialGrid grid, double x, double y, double radius)
+    {
+        if (found.length < grid.getItemCount())
+            found = new int[Math.max(grid.getItemCount(), 2 * found.length)];
+
+        return grid.query(x, y, radius, found);
+    }
+
+    /**
+     * Returns one of the enemies found by the last findEnemies().
+     *
+     * @param k  which result (0 to the count returned - 1)
+     * @return the enemy number in the store
+     */
+    public int getFound (int k)
+    {
+        return found[k];
+    }
+}
@@ -0,0 +1,309 @@
+/**
+ * 
+ */
+package game;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A hashed timing wheel:  a set of timers, each due at some time and
+ * carrying one int (such as a tower number), that can tell which of
+ * them have come due without looking at the others.
+ *
+ * Time is cut into ticks of a fixed width, and the wheel has a ring of
+ * slots, one per tick.  A timer is kept in the slot for the tick it is
+ * due in (wrapping around the ring, so a slot also holds timers due
+ * one or more turns of the wheel later).  Moving the wheel forward only
+ * visits the slots for the ticks that have passed, and each slot is a
+ * linked list, so adding and cancelling a timer take constant time.
+ *
+ * Timers live in parallel arrays, and are named by their position in
+ * them.  The arrays only grow (doubling) when more timers are waiting
+ * than ever before, so the wheel makes no garbage once it has warmed up.
+ */
+public class TimingWheel
+{
+    private static final int NONE = -1;
+
+    private double tickWidth;    // Seconds per slot
+    private int mask;            // Slots - 1 (the number of slots is a power of 2)
+    private int[] slotHead;      // The first timer in each slot, or NONE
+    private long currentTick;    // The tick the wheel has reached
+
+    private double[] due;        // When each timer is due
+    private int[] payload;       // The value each timer carries
+    private int[] next, previous;// The links of each slot's list (next is also the free list)
+    private int[] slotOf;        // The slot each timer is in, or NONE if it is free
+    private int freeHead;
+    private int waiting;         // The number of timers in the wheel
+
+    private int[] expired;       // Payloads of the timers found by expire()
+
+    /**
+     * Builds an empty wheel.
+     *
+     * @param tickWidth  the width of each slot, in seconds
+     * @param slots      the number of slots (rounded up to a power of 2)
+     * @param capacity   the number of timers to make room for up front
+     */
+    public TimingWheel (double tickWidth, int slots, int capacity)
+    {
+        int size = Integer.highestOneBit(Math.max(1, slots - 1)) << 1;
+
+        this.tickWidth = tickWidth;
+        this.mask = size - 1;
+        this.slotHead = new int[size];
+        Arrays.fill(slotHead, NONE);
+
+        due = new double[0];
+        payload = new int[0];
+        next = new int[0];
+        previous = new int[0];
+        slotOf = new int[0];
+        freeHead = NONE;
+        expired = new int[16];
+
+        grow(Math.max(1, capacity));
+    }
+
+    /**
+     * Adds a timer.
+     *
+     * @param time   when the timer is due, in seconds
+     * @param value  the value the timer carries (returned by getExpired)
+     * @return the timer number, for cancel() and setValue()
+     */
+    public int schedule (double time, int value)
+    {
+        if (freeHead == NONE)
+            grow(2 * due.length);
+
+        int timer = freeHead;
+        freeHead = next[timer];
+
+        // A timer that is already due goes in the current slot, so the
+        //   next expire() finds it.
+
+        long tick = Math.max(currentTick, (long) Math.floor(time / tickWidth));
+        int slot = (int) (tick & mask);
+
+        due[timer] = time;
+        payload[timer] = value;
+        slotOf[timer] = slot;
+
+        // Add it to the end of the slot's list (so timers due at the same
+        //   time come out in the order they were added).
+
+        next[timer] = NONE;
+        int head = slotHead[slot];
+        if (head == NONE)
+        {
+            previous[timer] = timer;    // The head's previous link is the tail
+            slotHead[slot] = timer;
+        }
+        else
+        {
+            int tail = previous[head];
+            next[tail] = timer;
+            previous[timer] = tail;
+            previous[head] = timer;
+        }
+
+        waiting++;
+        return timer;
+    }
+
+    /**
+     * Removes a timer before it is due.
+     *
+     * @param timer  a timer number from schedule()
+     */
+    public void cancel (int timer)
+    {
+        if (slotOf[timer] != NONE)
+            unlink(timer);
+    }
+
+    /**
+     * Changes the value a waiting timer carries.
+     *
+     * @param timer  a timer number from schedule()
+     * @param value  the new value
+     */
+    public void setValue (int timer, int value)
+    {
+        payload[timer] = value;
+    }
+
+    /**
+     * Moves the wheel forward to the given time, and removes every timer
+     * that is due by then.  Their values are available through
+     * getExpired() until the next call.  (Timers due in the same tick
+     * come out in the order they were added.)
+     *
+     * @param now  the time, in seconds
+     * @return the number of timers that expired
+     */
+    public int expire (double now)
+    {
+        int count = 0;
+        long nowTick = (long) Math.floor(now / tickWidth);
+
+        // Visit each slot that has come around since the last call (but
+        //   no slot twice, however far the wheel moves).  The slot for the
+        //   current tick is visited again next time, since it may still
+        //   hold timers due later in the tick.
+
+        long last = Math.min(nowTick, currentTick + mask);
+        for (long tick = currentTick; tick <= last && waiting > 0; tick++)
+        {
+            int timer = slotHead[(int) (tick & mask)];
+            while (timer != NONE)
+            {
+                int following = next[timer];
+
+                if (due[timer] <= now)
+                {
+                    if (count == expired.length)
+                        expired = Arrays.copyOf(expired, 2 * count);
+
+                    expired[count++] = payload[timer];
+                    unlink(timer);
+                }
+
+                timer = following;
+            }
+        }
+
+        currentTick = Math.max(currentTick, nowTick);
+        return count;
+    }
+
+    /**
+     * Returns the value of one of the timers found by the last expire().
+     *
+     * @param k  which timer (0 to the count returned - 1)
+     * @return the value it carried
+     */
+    public int getExpired (int k)
+    {
+        return expired[k];
+    }
+
+    /**
+     * Returns the number of timers waiting in the wheel.
+     *
+     * @return the number of timers
+     */
+    public int size ()
+    {
+        return waiting;
+    }
+
+    /**
+     * Writes every timer, and the position of the wheel, to a saved game
+     * (see SaveGame).
+     *
+     * @param out  the buffer to write to
+     */
+    void saveState (ByteBuffer out)
+    {
+        int size = due.length;
+
+        out.putInt(slotHead.length);
+        out.putLong(currentTick);
+        out.putInt(freeHead);
+        out.putInt(waiting);
+
+        SaveGame.putInts(out, slotHead, slotHead.length);
+        SaveGame.putDoubles(out, due, size);
+        SaveGame.putInts(out, payload, size);
+        SaveGame.putInts(out, next, size);
+        SaveGame.putInts(out, previous, size);
+        SaveGame.putInts(out, slotOf, size);
+    }
+
+    /**
+     * Replaces every timer with the ones in a saved game.  The wheel
+     * must have the same number of slots as the saved one.
+     *
+     * @param in  the buffer to read from
+     */
+    void restoreState (ByteBuffer in)
+    {
+        if (in.getInt() != slotHead.length)
+            throw new IllegalArgumentException("A saved timing wheel of another size");
+
+        currentTick = in.getLong();
+        freeHead = in.getInt();
+        waiting = in.getInt();
+        SaveGame.getInts(in, slotHead);
+
+        // The timer arrays are made the same size as the saved ones, so
+        //   the saved free list covers every free timer.
+
+        int size = SaveGame.peekCount(in);
+        due = new double[size];
+        payload = new int[size];
+        next = new int[size];
+        previous = new int[size];
+        slotOf = new int[size];
+
+        SaveGame.getDoubles(in, due);
+        SaveGame.getInts(in, payload);
+        SaveGame.getInts(in, next);
+        SaveGame.getInts(in, previous);
+        SaveGame.getInts(in, slotOf);
+    }
+
+    /* Helpers */
+
+    private void unlink (int timer)
+    {
+        int slot = slotOf[timer];
+        int head = slotHead[slot];
+        int after = next[timer];
+
+        if (timer == head)
+        {
+            slotHead[slot] = after;
+            if (after != NONE)
+                previous[after] = previous[timer];
+        }
+        else
+        {
+            int before = previous[timer];
+            next[before] = after;
+            if (after != NONE)
+                previous[after] = before;
+            else
+                previous[head] = before;   // It was the tail
+        }
+
+        slotOf[timer] = NONE;
+        next[timer] = freeHead;
+        freeHead = timer;
+        waiting--;
+    }
+
+    private void grow (int size)
+    {
+        int old = due.length;
+
+        due = Arrays.copyOf(due, size);
+        payload = Arrays.copyOf(payload, size);
+        next = Arrays.copyOf(next, size);
+        previous = Arrays.copyOf(previous, size);
+        slotOf = Arrays.copyOf(slotOf, size);
+
+        // Put the new timers on the free list, lowest first.
+
+        for (int timer = size - 1; timer >= old; timer--)
+        {
+            slotOf[timer] = NONE;
+            next[timer] = freeHead;
+            freeHead = timer;
+        }
+    }
+}
@@ -12,6 +12,12 @@ import java.awt.Graphics;
 public interface Tower
 {
     public void draw (Graphics g);
-    public void interact (Game g);
+    public void interact (GameSimulation g, TickWorker w);
     public void setPosition (Coordinate c);
+    
+    /* Primitive accessors, so the game loop never has to build a Coordinate. */
+    
+    public int getX ();
+    public int getY ();
+    public Sprite getSprite ();
 }
@@ -0,0 +1,32 @@
+/**
+ * 
+ */
+package game;
+
+/**
+ * The commands a player can issue to the simulation.  The
+ * front-end (or a test) translates its input into calls on
+ * this interface; the simulation decides whether each command
+ * is legal.
+ */
+public interface TowerCommands
+{
+    /**
+     * Selects a new tower for placement (the menu button).  This
+     * only succeeds if the player can afford a tower.
+     *
+     * @return true if the player is now placing a tower
+     */
+    public boolean selectTower ();
+
+    /**
+     * Places the selected tower at the given location.  This only
+     * succeeds if a tower was selected and the location is on the
+     * play field, sufficiently far away from the path.
+     *
+     * @param x  the x location of the tower
+     * @param y  the y location of the tower
+     * @return true if a tower was built
+     */
+    public boolean placeTower (int x, int y);
+}
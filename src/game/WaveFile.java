@@ -0,0 +1,238 @@
+/**
+ * 
+ */
+package game;
+
+import java.io.*;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Locale;
+
+/**
+ * Reads a wave file, one group of enemies at a time.  Each line of the
+ * file is a group:
+ *
+ *   time  count  type  [spacing]
+ *
+ * 'count' enemies of the given type ("snail" or "scargo"), the first
+ * one 'time' seconds after the waves begin, and the others 'spacing'
+ * seconds apart (0 if left out).  Groups may overlap.  A last line of
+ *
+ *   repeat  seconds
+ *
+ * starts the whole file over after that many seconds (every spawn must
+ * fall within that time).  Without it, the waves end with the file.
+ * Blank lines, and anything after a '#', are ignored.
+ *
+ * A file is normally compiled into a WaveTimeline.  Files too long to
+ * hold in memory are streamed by a WaveStream instead, which only keeps
+ * the groups that have started, and needs them in order of their times.
+ */
+public class WaveFile implements Closeable
+{
+    /* Static fields and methods */
+
+    static final int STREAM_SIZE = 1 << 20;   // Files bigger than this are streamed
+
+    /**
+     * Opens the waves in a resource file:  compiled into a timeline, or
+     * streamed if the file is bigger than STREAM_SIZE (or its size is
+     * not known).
+     *
+     * @param resourceName  the filename, relative to the "resources" directory
+     * @return the schedule
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file is not a wave file
+     */
+    public static SpawnSchedule open (String resourceName) throws IOException
+    {
+        URL url = WaveFile.class.getClassLoader().getResource("resources/" + resourceName);
+        if (url == null)
+            throw new FileNotFoundException("No wave file " + resourceName);
+
+        URLConnection connection = url.openConnection();
+        long size = connection.getContentLengthLong();
+        connection.getInputStream().close();
+
+        if (size < 0 || size > STREAM_SIZE)
+            return new WaveStream(resourceName);
+
+        WaveFile file = openResource(resourceName, false);
+        try
+        {
+            return WaveTimeline.compile(file);
+        }
+        finally
+        {
+            file.close();
+        }
+    }
+
+    /**
+     * Opens a resource file for reading.
+     *
+     * @param resourceName  the filename, relative to the "resources" directory
+     * @param inOrder       true if the groups must be in order of their times
+     * @return the reader
+     * @throws IOException if the file cannot be opened
+     */
+    static WaveFile openResource (String resourceName, boolean inOrder) throws IOException
+    {
+        InputStream in = WaveFile.class.getClassLoader().getResourceAsStream("resources/" + resourceName);
+        if (in == null)
+            throw new FileNotFoundException("No wave file " + resourceName);
+
+        return new WaveFile(new BufferedReader(new InputStreamReader(in, "UTF-8")), resourceName, inOrder);
+    }
+
+    /* Object fields and methods */
+
+    private BufferedReader reader;
+    private String name;
+    private boolean inOrder;
+    private int lineNumber;
+    private double lastTime;    // The time of the last group read
+    private double lastSpawn;   // The time of the last spawn of any group read
+    private double repeat;      // 0 until a repeat line is read
+
+    /**
+     * Builds a reader over a wave file.
+     *
+     * @param reader   the text of the file
+     * @param name     the name of the file (for error messages)
+     * @param inOrder  true if the groups must be in order of their times
+     */
+    public WaveFile (BufferedReader reader, String name, boolean inOrder)
+    {
+        this.reader = reader;
+        this.name = name;
+        this.inOrder = inOrder;
+    }
+
+    /**
+     * Reads the next group.
+     *
+     * @return the group, or null at the end of the file
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if a line is not understood, or
+     *         the groups are out of order when they must not be
+     */
+    public Group next () throws IOException
+    {
+        String line;
+        while ((line = reader.readLine()) != null)
+        {
+            lineNumber++;
+
+            int comment = line.indexOf('#');
+            if (comment >= 0)
+                line = line.substring(0, comment);
+
+            String[] words = line.trim().split("\\s+");
+            if (words[0].length() == 0)
+                continue;
+
+            if (repeat > 0)
+                throw error("nothing may follow the repeat line");
+
+            if (words[0].equals("repeat"))
+            {
+                if (words.length != 2)
+                    throw error("expected 'repeat seconds'");
+
+                repeat = parseNumber(words[1]);
+                if (!(repeat > 0) || repeat < lastSpawn)
+                    throw error("the repeat time must be positive, and no earlier than the last spawn (" + lastSpawn + ")");
+                continue;
+            }
+
+            if (words.length < 3 || words.length > 4)
+                throw error("expected 'time count type [spacing]'");
+
+            Group g = new Group();
+            g.time = parseNumber(words[0]);
+            g.count = (int) parseNumber(words[1]);
+            g.type = parseType(words[2]);
+            g.spacing = words.length == 4 ? parseNumber(words[3]) : 0;
+
+            if (!(g.time >= 0) || g.count < 1 || !(g.spacing >= 0))
+                throw error("the time and spacing must not be negative, and the count must be positive");
+            if (inOrder && g.time < lastTime)
+                throw error("groups must be in order of their times");
+
+            lastTime = g.time;
+            lastSpawn = Math.max(lastSpawn, g.time + (g.count - 1) * g.spacing);
+            return g;
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the repeat time.  Only known once the end of the file has
+     * been reached.
+     *
+     * @return the seconds after which the waves start over, or 0 if they do not
+     */
+    public double getRepeat ()
+    {
+        return repeat;
+    }
+
+    /**
+     * Closes the file.
+     *
+     * @throws IOException if it cannot be closed
+     */
+    public void close () throws IOException
+    {
+        reader.close();
+    }
+
+    /* Helpers */
+
+    private double parseNumber (String word)
+    {
+        try
+        {
+            return Double.parseDouble(word);
+        }
+        catch (NumberFormatException e)
+        {
+            throw error("'" + word + "' is not a number");
+        }
+    }
+
+    private EnemyType parseType (String word)
+    {
+        try
+        {
+            return EnemyType.valueOf(word.toUpperCase(Locale.ROOT));
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw error("'" + word + "' is not a kind of enemy");
+        }
+    }
+
+    private IllegalArgumentException error (String message)
+    {
+        return new IllegalArgumentException(name + ", line " + lineNumber + ": " + message);
+    }
+
+    /**
+     * One line of a wave file.
+     */
+    public static class Group
+    {
+        double time;       // When the first enemy appears
+        int count;         // How many enemies
+        EnemyType type;
+        double spacing;    // The seconds between them
+
+        double next;       // When the next one appears (used by WaveStream)
+        double cycleOffset; // The repeat time added to this pass through the file
+        int made;          // How many have appeared
+        long order;        // Which line came first, for ties
+    }
+}
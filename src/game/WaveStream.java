@@ -0,0 +1,137 @@
+/**
+ * 
+ */
+package game;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * A spawn schedule read from a wave file as the game goes, for files
+ * too long to compile into memory.  Only the groups that have started
+ * (and the next one to start) are kept.  The groups in the file must
+ * be in order of their times, but they may overlap:  the started
+ * groups are kept in a queue ordered by when each one's next enemy is
+ * due, so the enemies still come out in time order.
+ *
+ * When the file has a repeat line, it is opened again at the end, with
+ * its times moved on by the repeat time.
+ */
+public class WaveStream implements SpawnSchedule
+{
+    /* Static fields and methods */
+
+    private static final Comparator<WaveFile.Group> BY_NEXT_ENEMY = new Comparator<WaveFile.Group>()
+    {
+        public int compare (WaveFile.Group a, WaveFile.Group b)
+        {
+            int c = Double.compare(a.next, b.next);
+            return c != 0 ? c : Long.compare(a.order, b.order);
+        }
+    };
+
+    /* Object fields and methods */
+
+    private String resourceName;
+    private WaveFile file;          // Null once the waves are over
+    private double offset;          // Added to the times in the file (for repeats)
+    private long groupsRead;
+
+    private PriorityQueue<WaveFile.Group> started;
+    private WaveFile.Group upcoming;   // The next group in the file, not started yet
+
+    /**
+     * Opens a wave file and reads its first group.
+     *
+     * @param resourceName  the filename, relative to the "resources" directory
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file is not a wave file
+     */
+    public WaveStream (String resourceName) throws IOException
+    {
+        this.resourceName = resourceName;
+        started = new PriorityQueue<WaveFile.Group>(16, BY_NEXT_ENEMY);
+
+        file = WaveFile.openResource(resourceName, true);
+        upcoming = read();
+    }
+
+    /* (non-Javadoc)
+     * @see game.SpawnSchedule#spawnDue(double, game.CommandBuffer)
+     */
+    @Override
+    public void spawnDue (double time, CommandBuffer commands)
+    {
+        try
+        {
+            while (true)
+            {
+                // Start every group that begins by now.  (No group later
+                //   in the file can have an enemy due any earlier.)
+
+                while (upcoming != null && upcoming.next <= time)
+                {
+                    started.add(upcoming);
+                    upcoming = read();
+                }
+
+                WaveFile.Group g = started.peek();
+                if (g == null || g.next > time)
+                    return;
+
+                // Spawn its next enemy, then put it back in line.
+
+                started.poll();
+                commands.spawnEnemy(g.type, (time - g.next) * g.type.velocity);
+
+                // (Worked out from the start of the group, not added up,
+                //   so the times match a compiled timeline exactly.)
+
+                g.made++;
+                g.next = g.cycleOffset + (g.time + g.made * g.spacing);
+                if (g.made < g.count)
+                    started.add(g);
+            }
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException("Could not read " + resourceName, e);
+        }
+    }
+
+    /* Helpers */
+
+    /**
+     * Reads the next group, opening the file again at the end if it
+     * repeats.
+     *
+     * @return the group, or null once the waves are over
+     */
+    private WaveFile.Group read () throws IOException
+    {
+        if (file == null)
+            return null;
+
+        WaveFile.Group g = file.next();
+
+        if (g == null)
+        {
+            double repeat = file.getRepeat();
+            file.close();
+            file = null;
+
+            if (repeat <= 0 || groupsRead == 0)
+                return null;
+
+            offset += repeat;
+            file = WaveFile.openResource(resourceName, true);
+            g = file.next();
+        }
+
+        g.cycleOffset = offset;
+        g.next = offset + g.time;
+        g.order = groupsRead++;
+        return g;
+    }
+}
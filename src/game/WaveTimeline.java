@@ -0,0 +1,209 @@
+/**
+ * 
+ */
+package game;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * A spawn schedule compiled into arrays:  the time and type of every
+ * enemy, sorted by time, and the time after which the whole list
+ * starts over (if it does).  Asking for the enemies that are due just
+ * walks forward through the arrays, so it makes no garbage.
+ */
+public class WaveTimeline implements SpawnSchedule
+{
+    /* Static fields and methods */
+
+    private static final EnemyType[] ENEMY_TYPES = EnemyType.values();
+
+    /**
+     * Compiles a wave script:  's' for a snail, 'v' for an s-cargo, and
+     * a digit to wait that many tenths of a second (see
+     * GameSimulation.DEFAULT_WAVES).  The script starts over when it
+     * reaches its end.
+     *
+     * @param script  the script, such as "s9v9s99"
+     * @return the timeline
+     * @throws IllegalArgumentException if the script is empty, holds
+     *         anything but 's', 'v', and digits, or never waits
+     */
+    public static WaveTimeline fromScript (String script)
+    {
+        if (script.length() == 0)
+            throw new IllegalArgumentException("Empty wave script");
+
+        int spawns = 0;
+        for (int i = 0; i < script.length(); i++)
+        {
+            char ch = script.charAt(i);
+            if (ch == 's' || ch == 'v')
+                spawns++;
+            else if (ch < '0' || ch > '9')
+                throw new IllegalArgumentException("Bad character '" + ch + "' in wave script: " + script);
+        }
+
+        double[] times = new double[spawns];
+        byte[] types = new byte[spawns];
+        int tenths = 0, n = 0;
+
+        for (int i = 0; i < script.length(); i++)
+        {
+            char ch = script.charAt(i);
+            if (ch == 's' || ch == 'v')
+            {
+                times[n] = tenths / 10.0;
+                types[n++] = (byte) (ch == 's' ? EnemyType.SNAIL : EnemyType.SCARGO).ordinal();
+            }
+            else
+                tenths += ch - '0';   // Subtract ascii 0 from ascii #
+        }
+
+        if (tenths == 0)
+            throw new IllegalArgumentException("Wave script never waits: " + script);
+
+        return new WaveTimeline(times, types, tenths / 10.0);
+    }
+
+    /**
+     * Reads every group in a wave file, and compiles them into one list
+     * sorted by time.  (Enemies due at the same time keep the order of
+     * the lines they came from.)
+     *
+     * @param file  the wave file
+     * @return the timeline
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file is not a wave file
+     */
+    public static WaveTimeline compile (WaveFile file) throws IOException
+    {
+        List<WaveFile.Group> groups = new ArrayList<WaveFile.Group>();
+        int spawns = 0;
+
+        WaveFile.Group g;
+        while ((g = file.next()) != null)
+        {
+            groups.add(g);
+            spawns += g.count;
+        }
+
+        // Spread the groups out into single enemies, then sort them.
+        //   (The sort is stable, so ties stay in line order.)
+
+        final double[] allTimes = new double[spawns];
+        Integer[] order = new Integer[spawns];
+        byte[] allTypes = new byte[spawns];
+        int n = 0;
+
+        for (WaveFile.Group group : groups)
+            for (int k = 0; k < group.count; k++)
+            {
+                allTimes[n] = group.time + k * group.spacing;
+                allTypes[n] = (byte) group.type.ordinal();
+                order[n] = n;
+                n++;
+            }
+
+        Arrays.sort(order, new Comparator<Integer>()
+        {
+            public int compare (Integer a, Integer b)
+            {
+                return Double.compare(allTimes[a], allTimes[b]);
+            }
+        });
+
+        double[] times = new double[spawns];
+        byte[] types = new byte[spawns];
+        for (int i = 0; i < spawns; i++)
+        {
+            times[i] = allTimes[order[i]];
+            types[i] = allTypes[order[i]];
+        }
+
+        return new WaveTimeline(times, types, file.getRepeat());
+    }
+
+    /* Object fields and methods */
+
+    private double[] times;    // When each enemy is due, in order
+    private byte[] types;      // The EnemyType ordinal of each
+    private double period;     // The time after which the list starts over, or 0
+
+    private int next;          // The next enemy in the list
+    private double cycleStart; // When the current pass through the list began
+
+    /**
+     * Builds a timeline.
+     *
+     * @param times   when each enemy is due, sorted
+     * @param types   the EnemyType ordinal of each enemy
+     * @param period  the time after which the list starts over (no
+     *                earlier than the last time), or 0 if it does not
+     */
+    public WaveTimeline (double[] times, byte[] types, double period)
+    {
+        this.times = times;
+        this.types = types;
+        this.period = times.length > 0 ? period : 0;
+    }
+
+    /**
+     * Returns a timeline with the same enemies, starting from the
+     * beginning.  (The arrays are shared, since they never change.)
+     *
+     * @return the copy
+     */
+    public WaveTimeline copy ()
+    {
+        return new WaveTimeline(times, types, period);
+    }
+
+    /* (non-Javadoc)
+     * @see game.SpawnSchedule#spawnDue(double, game.CommandBuffer)
+     */
+    @Override
+    public void spawnDue (double time, CommandBuffer commands)
+    {
+        while (true)
+        {
+            // At the end of the list, start over (or stop).
+
+            if (next == times.length)
+            {
+                if (period <= 0)
+                    return;
+
+                next = 0;
+                cycleStart += period;
+            }
+
+            double due = cycleStart + times[next];
+            if (due > time)
+                return;
+
+            EnemyType t = ENEMY_TYPES[types[next++]];
+            commands.spawnEnemy(t, (time - due) * t.velocity);
+        }
+    }
+
+    /**
+     * Returns the number of enemies in one pass through the list.
+     *
+     * @return the number of enemies
+     */
+    public int size ()
+    {
+        return times.length;
+    }
+
+    /**
+     * Returns the time after which the list starts over.
+     *
+     * @return the period, in seconds, or 0 if the list does not repeat
+     */
+    public double getPeriod ()
+    {
+        return period;
+    }
+}